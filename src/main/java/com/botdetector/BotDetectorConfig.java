@@ -42,10 +42,14 @@ public interface BotDetectorConfig extends Config
 	String CONFIG_GROUP = "botdetector";
 	String ONLY_SEND_AT_LOGOUT_KEY = "sendAtLogout";
 	String AUTO_SEND_MINUTES_KEY = "autoSendMinutes";
+	String COMPRESS_UPLOADS_KEY = "compressUploads";
+	String CAPTURE_WINDOW_TICKS_KEY = "captureWindowTicks";
+	String SAMPLE_TRAJECTORIES_KEY = "sampleTrajectories";
 	String ADD_PREDICT_PLAYER_OPTION_KEY = "addDetectOption"; // I know it says detect, don't change it.
 	String ADD_PREDICT_MENU_OPTION_KEY = "addPlayerMenuOption";
 	String ANONYMOUS_UPLOADING_KEY = "enableAnonymousReporting";
 	String PANEL_FONT_TYPE_KEY = "panelFontType";
+	String PREDICTION_CACHE_MINUTES_KEY = "predictionCacheMinutes";
 	String AUTH_FULL_TOKEN_KEY = "authToken";
 	String SHOW_FEEDBACK_TEXTBOX = "showFeedbackTextbox";
 	String SHOW_DISCORD_VERIFICATION_ERRORS = "showDiscordVerificationErrors";
@@ -162,6 +166,61 @@ public interface BotDetectorConfig extends Config
 		return 5;
 	}
 
+	@ConfigItem(
+		position = 5,
+		keyName = COMPRESS_UPLOADS_KEY,
+		name = "Compress Uploads",
+		description = "Compresses name uploads to use less bandwidth."
+			+ "<br>Uploads are sent uncompressed if the server does not support compression.",
+		section = uploadSection
+	)
+	default boolean compressUploads()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		position = 6,
+		keyName = CAPTURE_WINDOW_TICKS_KEY,
+		name = "Ignore Repeat Sightings For",
+		description = "Skips capturing a player again if they were seen in the same region within this many game ticks,"
+			+ "<br>such as players walking back and forth at the edge of your view. Set to 0 to capture every sighting.",
+		section = uploadSection
+	)
+	@Range(max = 100)
+	@Units(Units.TICKS)
+	default int captureWindowTicks()
+	{
+		return 10;
+	}
+
+	@ConfigItem(
+		position = 7,
+		keyName = SAMPLE_TRAJECTORIES_KEY,
+		name = "Sample Player Movement",
+		description = "Periodically samples the positions of all players around you and uploads their movement with your sightings."
+			+ "<br>Uses slightly more CPU, memory and bandwidth in crowded areas.",
+		section = uploadSection
+	)
+	default boolean sampleTrajectories()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		position = 8,
+		keyName = "trajectorySampleTicks",
+		name = "Sample Movement Every",
+		description = "Sets the amount of game ticks between player movement samples.",
+		section = uploadSection
+	)
+	@Range(min = 1, max = 50)
+	@Units(Units.TICKS)
+	default int trajectorySampleTicks()
+	{
+		return 5;
+	}
+
 	@ConfigItem(
 		position = 1,
 		keyName = "autocomplete",
@@ -222,6 +281,21 @@ public interface BotDetectorConfig extends Config
 		return PanelFontType.NORMAL;
 	}
 
+	@ConfigItem(
+		position = 6,
+		keyName = PREDICTION_CACHE_MINUTES_KEY,
+		name = "Reuse Predictions For",
+		description = "Sets how long a player's prediction is reused before predicting them again hits the server."
+			+ "<br>Older predictions are still displayed while they are being refreshed. Set to 0 to always refresh.",
+		section = panelSection
+	)
+	@Range(max = 60)
+	@Units(Units.MINUTES)
+	default int predictionCacheMinutes()
+	{
+		return 5;
+	}
+
 	@ConfigItem(
 		position = 1,
 		keyName = ADD_PREDICT_PLAYER_OPTION_KEY,
@@ -27,49 +27,70 @@ package com.botdetector;
 
 import com.botdetector.http.BotDetectorClient;
 import com.botdetector.http.UnauthorizedTokenException;
-import com.botdetector.http.ValidationException;
 import com.botdetector.model.AuthToken;
 import com.botdetector.model.AuthTokenPermission;
 import com.botdetector.model.AuthTokenType;
 import com.botdetector.model.CaseInsensitiveString;
-import com.botdetector.model.PlayerSighting;
+import com.botdetector.model.CompactPlayerSighting;
 import com.botdetector.model.PlayerStats;
 import com.botdetector.model.PlayerStatsType;
 import com.botdetector.model.FeedbackPredictionLabel;
 import com.botdetector.model.StatsCommandDetailLevel;
+import com.botdetector.model.Trajectory;
+import com.botdetector.sighting.CaptureThrottle;
+import com.botdetector.sighting.EquipmentValueCache;
+import com.botdetector.sighting.FlushScheduler;
+import com.botdetector.sighting.SceneWalker;
+import com.botdetector.sighting.SightingBuffer;
+import com.botdetector.sighting.SightingSpool;
+import com.botdetector.sighting.TrajectoryRecorder;
 import com.botdetector.ui.BotDetectorPanel;
 import com.botdetector.events.BotDetectorPanelActivated;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.EvictingQueue;
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Table;
-import com.google.common.collect.Tables;
-import com.google.common.primitives.Ints;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Toolkit;
 import java.awt.Color;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.StringSelection;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.swing.JEditorPane;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -90,6 +111,7 @@ import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.ChatMessage;
 import net.runelite.api.events.CommandExecuted;
 import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
 import net.runelite.api.events.MenuEntryAdded;
 import net.runelite.api.events.MenuOpened;
 import net.runelite.api.events.MenuOptionClicked;
@@ -98,6 +120,7 @@ import net.runelite.api.events.WorldChanged;
 import net.runelite.api.kit.KitType;
 import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.widgets.WidgetUtil;
+import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.chat.ChatColorType;
 import net.runelite.client.chat.ChatCommandManager;
@@ -134,15 +157,32 @@ import static com.botdetector.model.CaseInsensitiveString.wrap;
 )
 public class BotDetectorPlugin extends Plugin
 {
-	/** {@link PlayerSighting}s should only be created if the player is logged into a world set up for one of these {@link RuneScapeProfileType}s. **/
+	/** {@link CompactPlayerSighting}s should only be created if the player is logged into a world set up for one of these {@link RuneScapeProfileType}s. **/
 	private static final ImmutableSet<RuneScapeProfileType> ALLOWED_PROFILE_TYPES =
 		ImmutableSet.of(
 			RuneScapeProfileType.STANDARD
 		);
 
-	/** {@link PlayerSighting}s should only be created if the returned region id is <= this amount. **/
+	/** {@link CompactPlayerSighting}s should only be created if the returned region id is <= this amount. **/
 	private static final int MAX_ALLOWED_REGION_ID = 16000;
 
+	private static final KitType[] KIT_TYPES = KitType.values();
+
+	/** Maximum time spent capturing pending players per game tick, the rest is left for the next ticks. **/
+	private static final long CAPTURE_TICK_BUDGET_NANOS = 3_000_000;
+	/** Maximum time {@link #shutDown()} waits for the client thread to capture the pending players. **/
+	private static final long SHUTDOWN_CAPTURE_TIMEOUT_MILLIS = 1000;
+	/** How long to keep the spool session locked on shutdown, waiting for the final flush to release its segments. **/
+	private static final long SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 5000;
+	/** Slots in {@link #captureThrottle}, comfortably above the number of players seen in a busy scene. **/
+	private static final int CAPTURE_THROTTLE_CAPACITY = 4096;
+	/** Maximum time spent sampling player positions per game tick, players not reached in time are skipped for that sample. **/
+	private static final long TRAJECTORY_TICK_BUDGET_NANOS = 1_000_000;
+	/** Maximum number of players whose movement is tracked at once by {@link #trajectoryRecorder}. **/
+	private static final int TRAJECTORY_MAX_PLAYERS = 512;
+	/** Maximum number of movement steps kept per player by {@link #trajectoryRecorder}. **/
+	private static final int TRAJECTORY_STEPS_PER_PLAYER = 64;
+
 	private static final Pattern UUID_PATTERN = Pattern.compile("^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$");
 
 	private static final String PREDICT_OPTION = "Predict";
@@ -170,6 +210,8 @@ public class BotDetectorPlugin extends Plugin
 	private static final String CLEAR_AUTH_TOKEN_COMMAND = COMMAND_PREFIX + "ClearToken";
 	private static final String TOGGLE_SHOW_DISCORD_VERIFICATION_ERRORS_COMMAND = COMMAND_PREFIX + "ToggleShowDiscordVerificationErrors";
 	private static final String TOGGLE_SHOW_DISCORD_VERIFICATION_ERRORS_COMMAND_ALIAS = COMMAND_PREFIX + "ToggleDVE";
+	private static final String DIAGNOSTICS_COMMAND = COMMAND_PREFIX + "Diag";
+	private static final String PREDICT_ALL_COMMAND = COMMAND_PREFIX + "PredictAll";
 
 	/** Command to method map to be used in {@link #onCommandExecuted(CommandExecuted)}. **/
 	private final ImmutableMap<CaseInsensitiveString, Consumer<String[]>> commandConsumerMap =
@@ -183,17 +225,31 @@ public class BotDetectorPlugin extends Plugin
 			.put(wrap(CLEAR_AUTH_TOKEN_COMMAND), s -> clearAuthTokenCommand())
 			.put(wrap(TOGGLE_SHOW_DISCORD_VERIFICATION_ERRORS_COMMAND), s -> toggleShowDiscordVerificationErrors())
 			.put(wrap(TOGGLE_SHOW_DISCORD_VERIFICATION_ERRORS_COMMAND_ALIAS), s -> toggleShowDiscordVerificationErrors())
+			.put(wrap(DIAGNOSTICS_COMMAND), s -> diagnosticsCommand())
+			.put(wrap(PREDICT_ALL_COMMAND), s -> predictAllCommand())
 			.build();
 
 	private static final int MANUAL_FLUSH_COOLDOWN_SECONDS = 60;
 	private static final int AUTO_REFRESH_STATS_COOLDOWN_SECONDS = 150;
 	private static final int AUTO_REFRESH_LAST_FLUSH_GRACE_PERIOD_SECONDS = 30;
 	private static final int API_HIT_SCHEDULE_SECONDS = 5;
+	/** The maximum number of sightings sent per request by {@link #flushPlayersToClient(boolean, boolean)}. **/
+	private static final int UPLOAD_CHUNK_SIZE = 2000;
+	/** The maximum number of sighting requests in flight at once for {@link #flushPlayersToClient(boolean, boolean)}. **/
+	private static final int UPLOAD_MAX_CONCURRENT_CHUNKS = 2;
 
 	private static final String CHAT_MESSAGE_HEADER = "[Bot Detector] ";
 	public static final String ANONYMOUS_USER_NAME = "AnonymousUser";
 	public static final String ANONYMOUS_USER_NAME_UUID_FORMAT = ANONYMOUS_USER_NAME + "_%s";
 
+	/** Directory containing files persisted by the plugin. **/
+	public static final File BOT_DETECTOR_DIR = new File(RuneLite.RUNELITE_DIR, "bot-detector");
+	/** Directory for {@link SightingSpool} segments, within {@link #BOT_DETECTOR_DIR}. **/
+	private static final File SIGHTING_SPOOL_DIR = new File(BOT_DETECTOR_DIR, "spool");
+
+	private static final int CALLBACK_EXECUTOR_THREADS = 2;
+	private static final int CALLBACK_EXECUTOR_QUEUE_SIZE = 256;
+
 	@Inject
 	private Client client;
 
@@ -239,10 +295,14 @@ public class BotDetectorPlugin extends Plugin
 	/** The currently logged in player name, or {@code null} if the user is logged out. **/
 	@Getter
 	private String loggedPlayerName;
-	/** The next time an automatic call to {@link #flushPlayersToClient(boolean)} should be allowed to run. **/
-	private Instant timeToAutoSend;
-	/** The total number of names uploaded in the current login session. **/
-	private int namesUploaded;
+	/** Decides when an automatic call to {@link #flushPlayersToClient(boolean)} should run. **/
+	private final FlushScheduler flushScheduler = new FlushScheduler(
+		BotDetectorConfig.AUTO_SEND_MINIMUM_MINUTES, BotDetectorConfig.AUTO_SEND_MAXIMUM_MINUTES);
+	/**
+	 * The total number of names uploaded in the current login session.
+	 * Updated from {@link #callbackExecutor} threads, which may complete several chunked flushes at once.
+	 */
+	private final AtomicInteger namesUploaded = new AtomicInteger();
 	/** The last time a {@link #flushPlayersToClient(boolean)} was successfully attempted. **/
 	private Instant lastFlush = Instant.MIN;
 	/** The last time a {@link #refreshPlayerStats(boolean)}} was successfully attempted. **/
@@ -253,7 +313,7 @@ public class BotDetectorPlugin extends Plugin
 	private boolean isCurrentWorldMembers;
 	/** See {@link #processCurrentWorld()}. **/
 	private boolean isCurrentWorldPVP;
-	/** A blocked world should not log {@link PlayerSighting}s (see {@link #processCurrentWorld()} and {@link #ALLOWED_PROFILE_TYPES}). **/
+	/** A blocked world should not log {@link CompactPlayerSighting}s (see {@link #processCurrentWorld()} and {@link #ALLOWED_PROFILE_TYPES}). **/
 	private boolean isCurrentWorldBlocked;
 	/** A queue containing the last two {@link GameState}s from {@link #onGameStateChanged(GameStateChanged)}. **/
 	private final EvictingQueue<GameState> previousTwoGameStates = EvictingQueue.create(2);
@@ -266,19 +326,71 @@ public class BotDetectorPlugin extends Plugin
 	private String anonymousUUID;
 
 	/**
-	 * Contains the last {@link PlayerSighting} for the given {@code player} and {@code regionId}
+	 * Contains the last {@link CompactPlayerSighting} for the given {@code player} and {@code regionId}
 	 * since the last successful call to {@link #flushPlayersToClient(boolean, boolean)}.
-	 * Always use {@link #normalizeAndWrapPlayerName(String)} when keying into this table.
+	 * Always use {@link #normalizeAndWrapPlayerName(String)} when keying into this buffer.
 	 */
 	@Getter
-	private final Table<CaseInsensitiveString, Integer, PlayerSighting> sightingTable = Tables.synchronizedTable(HashBasedTable.create());
+	private final SightingBuffer sightingBuffer = new SightingBuffer();
+
+	/**
+	 * On-disk copy of the sightings captured since the last successful call to {@link #flushPlayersToClient(boolean, boolean)}.
+	 * Sightings left over by previous sessions of the same uploader are replayed into {@link #sightingBuffer}
+	 * by {@link #updateSpoolOwner()}, {@code null} while the plugin is shut down.
+	 */
+	private SightingSpool sightingSpool;
+	/**
+	 * Held while adding a sighting to both {@link #sightingBuffer} and {@link #sightingSpool},
+	 * and while sealing the spool and draining the buffer for a flush, so that both agree on which sightings are uploaded.
+	 */
+	private final Object sightingSpoolLock = new Object();
+
+	/**
+	 * Players waiting to be captured into sightings by {@link #onGameTick(GameTick)}, in the order they were seen.
+	 * Only accessed from the client thread.
+	 */
+	private final Set<Player> pendingCaptures = new LinkedHashSet<>();
+
+	/**
+	 * Skips capturing players recently captured in the same region, before {@link #capturePlayer(Player, boolean)} does any real work.
+	 * Only accessed from the client thread.
+	 */
+	private final CaptureThrottle captureThrottle = new CaptureThrottle(CAPTURE_THROTTLE_CAPACITY);
+
+	/**
+	 * Total value of the equipment sets seen by {@link #capturePlayer(Player, boolean)}, using GE prices rather than Wiki prices.
+	 * Only accessed from the client thread.
+	 */
+	private final EquipmentValueCache equipmentValueCache =
+		new EquipmentValueCache(itemId -> itemManager.getItemPriceWithSource(itemId, false));
 
 	/**
-	 * Contains the last {@link PlayerSighting} for the given {@code player} for the current login session.
+	 * Movement of nearby players sampled by {@link #sampleTrajectories()}, attached to sightings when flushing.
+	 */
+	private final TrajectoryRecorder trajectoryRecorder = new TrajectoryRecorder(TRAJECTORY_MAX_PLAYERS, TRAJECTORY_STEPS_PER_PLAYER);
+	/** Position in walk order of the first player sampled by {@link #sampleTrajectories()}, so no player is starved by the budget. **/
+	private int trajectoryWalkStart;
+
+	/** Walks the players of the whole scene for rescans and trajectory sampling. Only accessed from the client thread. **/
+	private final SceneWalker sceneWalker = new SceneWalker();
+
+	/**
+	 * Runs post-response processing for the plugin, {@link BotDetectorClient} and {@link BotDetectorPanel},
+	 * instead of OkHttp's dispatcher threads or the shared common pool. {@code null} while the plugin is shut down.
+	 */
+	private ThreadPoolExecutor callbackExecutor;
+	/** The number of tasks that {@link #callbackExecutor} could not queue and were run on the submitting thread instead. **/
+	private final AtomicLong callbackExecutorOverflows = new AtomicLong();
+
+	/** Set while {@link #predictAllCommand()} is waiting on its predictions, so only one batch runs at a time. **/
+	private final AtomicBoolean predictAllInFlight = new AtomicBoolean();
+
+	/**
+	 * Contains the last {@link CompactPlayerSighting} for the given {@code player} for the current login session.
 	 * Always use {@link #normalizeAndWrapPlayerName(String)} when keying into this map.
 	 */
 	@Getter
-	private final Map<CaseInsensitiveString, PlayerSighting> persistentSightings = new ConcurrentHashMap<>();
+	private final Map<CaseInsensitiveString, CompactPlayerSighting> persistentSightings = new ConcurrentHashMap<>();
 
 	/**
 	 * Contains the feedbacks (See {@link FeedbackPredictionLabel}) sent per {@code player} for the current login session.
@@ -331,6 +443,18 @@ public class BotDetectorPlugin extends Plugin
 			configManager.setConfiguration(BotDetectorConfig.CONFIG_GROUP, BotDetectorConfig.ANONYMOUS_UUID_KEY, anonymousUUID);
 		}
 
+		callbackExecutor = new ThreadPoolExecutor(CALLBACK_EXECUTOR_THREADS, CALLBACK_EXECUTOR_THREADS,
+			30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(CALLBACK_EXECUTOR_QUEUE_SIZE),
+			new ThreadFactoryBuilder().setNameFormat("bot-detector-callback-%d").setDaemon(true).build(),
+			(task, executor) ->
+			{
+				// Never drop a continuation, even once shut down, as futures depend on it
+				callbackExecutorOverflows.incrementAndGet();
+				task.run();
+			});
+		callbackExecutor.allowCoreThreadTimeOut(true);
+		detectorClient.setCallbackExecutor(callbackExecutor);
+
 		panel = injector.getInstance(BotDetectorPanel.class);
 		SwingUtilities.invokeLater(() ->
 		{
@@ -344,6 +468,14 @@ public class BotDetectorPlugin extends Plugin
 
 		processCurrentWorld();
 
+		// Sightings not uploaded during previous sessions are put back once the uploader is known
+		sightingSpool = new SightingSpool(SIGHTING_SPOOL_DIR);
+		sightingSpool.open();
+		updateSpoolOwner();
+
+		// Read the last known labels off the client thread, so the first prediction does not wait on the API for them
+		callbackExecutor.execute(detectorClient::loadPersistedLabels);
+
 		final BufferedImage icon = ImageUtil.loadImageResource(getClass(), "bot-icon.png");
 
 		navButton = NavigationButton.builder()
@@ -364,6 +496,9 @@ public class BotDetectorPlugin extends Plugin
 
 		authToken = AuthToken.fromFullToken(config.authFullToken());
 
+		detectorClient.setUploadCompressionEnabled(config.compressUploads());
+		detectorClient.setPredictionCacheTtl(Duration.ofMinutes(config.predictionCacheMinutes()));
+
 		previousTwoGameStates.offer(client.getGameState());
 
 		chatCommandManager.registerCommand(VERIFY_DISCORD_COMMAND, this::verifyDiscord);
@@ -375,7 +510,56 @@ public class BotDetectorPlugin extends Plugin
 	{
 		panel.shutdown();
 
-		flushPlayersToClient(false);
+		// Players still waiting to be captured should be part of the final flush
+		CompletableFuture<Void> captured = new CompletableFuture<>();
+		clientThread.invoke(() ->
+		{
+			captureAllPendingPlayers(true);
+			captured.complete(null);
+		});
+		try
+		{
+			captured.get(SHUTDOWN_CAPTURE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException | TimeoutException e)
+		{
+			log.warn("Could not capture the pending players before the final flush", e);
+		}
+
+		// Keep the spool session locked until the final flush released its segments,
+		// otherwise a quick restart could claim and upload them a second time
+		CompletableFuture<Boolean> flush = flushPlayersToClient(false);
+		if (flush != null)
+		{
+			try
+			{
+				flush.get(SHUTDOWN_FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException | TimeoutException e)
+			{
+				log.warn("Could not complete the final flush before closing the sighting spool", e);
+			}
+		}
+		sightingSpool.close();
+		sightingSpool = null;
+		detectorClient.setCallbackExecutor(MoreExecutors.directExecutor());
+		callbackExecutor.shutdown();
+		callbackExecutor = null;
+		clientThread.invokeLater(() ->
+		{
+			pendingCaptures.clear();
+			captureThrottle.clear();
+			equipmentValueCache.invalidateAll();
+		});
+		trajectoryRecorder.clear();
 		persistentSightings.clear();
 		feedbackedPlayers.clear();
 		feedbackedPlayersText.clear();
@@ -388,7 +572,7 @@ public class BotDetectorPlugin extends Plugin
 
 		clientToolbar.removeNavigation(navButton);
 
-		namesUploaded = 0;
+		namesUploaded.set(0);
 		loggedPlayerName = null;
 		lastFlush = Instant.MIN;
 		lastStatsRefresh = Instant.MIN;
@@ -401,14 +585,11 @@ public class BotDetectorPlugin extends Plugin
 	}
 
 	/**
-	 * Updates {@link #timeToAutoSend} according to {@link BotDetectorConfig#autoSendMinutes()}.
+	 * Restarts {@link #flushScheduler} according to {@link BotDetectorConfig#autoSendMinutes()}.
 	 */
 	private void updateTimeToAutoSend()
 	{
-		timeToAutoSend = Instant.now().plusSeconds(60L *
-			Ints.constrainToRange(config.autoSendMinutes(),
-				BotDetectorConfig.AUTO_SEND_MINIMUM_MINUTES,
-				BotDetectorConfig.AUTO_SEND_MAXIMUM_MINUTES));
+		flushScheduler.reset(Instant.now(), config.autoSendMinutes());
 	}
 
 	/**
@@ -422,7 +603,7 @@ public class BotDetectorPlugin extends Plugin
 			return;
 		}
 
-		if (!config.onlySendAtLogout() && Instant.now().isAfter(timeToAutoSend))
+		if (!config.onlySendAtLogout() && flushScheduler.shouldFlush(Instant.now(), sightingBuffer.size()))
 		{
 			flushPlayersToClient(true);
 		}
@@ -431,8 +612,8 @@ public class BotDetectorPlugin extends Plugin
 	}
 
 	/**
-	 * Attempts to send the contents of {@link #sightingTable} to {@link BotDetectorClient#sendSightings(Collection, String, boolean)}.
-	 * @param restoreOnFailure The table is cleared before sending. If {@code true}, re-insert the cleared sightings into the table on failure.
+	 * Attempts to send the contents of {@link #sightingBuffer} to {@link BotDetectorClient#sendSightingsInChunks(List, String, boolean, int, int)}.
+	 * @param restoreOnFailure The buffer is drained before sending. If {@code true}, re-insert the sightings from failed chunks into the buffer.
 	 * @return A completable future if there were any names to attempt to send, {@code null} otherwise.
 	 */
 	public synchronized CompletableFuture<Boolean> flushPlayersToClient(boolean restoreOnFailure)
@@ -441,10 +622,12 @@ public class BotDetectorPlugin extends Plugin
 	}
 
 	/**
-	 * Attempts to send the contents of {@link #sightingTable} to {@link BotDetectorClient#sendSightings(Collection, String, boolean)}.
-	 * @param restoreOnFailure The table is cleared before sending. If {@code true}, re-insert the cleared sightings into the table on failure.
+	 * Attempts to send the contents of {@link #sightingBuffer} to {@link BotDetectorClient#sendSightingsInChunks(List, String, boolean, int, int)}.
+	 * @param restoreOnFailure The buffer is drained before sending. If {@code true}, re-insert the sightings from failed chunks into the buffer.
 	 * @param forceChatNotification Force displays the chat notifications.
 	 * @return A completable future if there were any names to attempt to send, {@code null} otherwise.
+	 * The future completes once the spooled copies of the sightings are released, and returns {@code true}
+	 * only if every chunk was uploaded successfully.
 	 */
 	public synchronized CompletableFuture<Boolean> flushPlayersToClient(boolean restoreOnFailure, boolean forceChatNotification)
 	{
@@ -456,57 +639,74 @@ public class BotDetectorPlugin extends Plugin
 
 		updateTimeToAutoSend();
 
-		int uniqueNames;
-		Collection<PlayerSighting> sightings;
-		int numUploads;
-		synchronized (sightingTable)
+		// Seal the spool before draining, so that every sealed sighting is part of this flush
+		final SightingSpool spool = sightingSpool;
+		final SightingSpool.Checkpoint checkpoint;
+		List<CompactPlayerSighting> sightings;
+		synchronized (sightingSpoolLock)
+		{
+			checkpoint = spool != null ? spool.checkpoint() : null;
+			sightings = sightingBuffer.drain();
+		}
+		if (sightings.isEmpty())
 		{
-			uniqueNames = sightingTable.rowKeySet().size();
-			if (uniqueNames <= 0)
+			if (checkpoint != null)
 			{
-				return null;
+				spool.release(checkpoint, Collections.emptyList());
 			}
-
-			sightings = new ArrayList<>(sightingTable.values());
-			sightingTable.clear();
-			numUploads = sightings.size();
+			return null;
 		}
 
+		attachTrajectories(sightings);
+		int numSightings = sightings.size();
+
 		lastFlush = Instant.now();
 
-		return detectorClient.sendSightings(sightings, getUploaderName(), false)
-			.whenComplete((b, ex) ->
+		return detectorClient.sendSightingsInChunks(sightings, uploader, false,
+			UPLOAD_CHUNK_SIZE, UPLOAD_MAX_CONCURRENT_CHUNKS)
+			.thenComposeAsync(result ->
 			{
-				if (ex == null && b)
+				List<CompactPlayerSighting> uploaded = result.getUploaded();
+				if (!uploaded.isEmpty())
 				{
-					namesUploaded += uniqueNames;
-					SwingUtilities.invokeLater(() -> panel.setNamesUploaded(namesUploaded, false));
-					sendChatStatusMessage("Successfully uploaded " + numUploads +
-						" locations for " + uniqueNames + " unique players.",
-						forceChatNotification);
+					int uniqueNames = SightingBuffer.countUniqueNames(uploaded);
+					namesUploaded.addAndGet(uniqueNames);
+					// Read the total on the EDT, so concurrent flushes can't display an older total last
+					SwingUtilities.invokeLater(() -> panel.setNamesUploaded(namesUploaded.get(), false));
+					if (result.isFullySuccessful())
+					{
+						sendChatStatusMessage("Successfully uploaded " + uploaded.size() +
+							" locations for " + uniqueNames + " unique players.",
+							forceChatNotification);
+					}
+					else
+					{
+						sendChatStatusMessage("Partially uploaded " + uploaded.size() + " out of " + numSightings +
+							" locations for " + uniqueNames + " unique players, some could not be sent!",
+							forceChatNotification);
+					}
 				}
 				else
 				{
 					sendChatStatusMessage("Error sending player sightings!", forceChatNotification);
-					// Put the sightings back, but not if it's because of a validation error
-					if (restoreOnFailure && !(ex instanceof ValidationException))
-					{
-						synchronized (sightingTable)
-						{
-							sightings.forEach(s ->
-							{
-								CaseInsensitiveString name = wrap(s.getPlayerName());
-								int region = s.getRegionID();
-								// Don't replace if new sightings were added to the table during the request
-								if (!sightingTable.contains(name, region))
-								{
-									sightingTable.put(name, region, s);
-								}
-							});
-						}
-					}
 				}
-			});
+
+				// Put the failed sightings back, but not those rejected because of a validation error
+				if (restoreOnFailure && !result.getFailed().isEmpty())
+				{
+					// Won't replace sightings that were added to the buffer during the request
+					sightingBuffer.restore(result.getFailed());
+				}
+
+				// If the failed sightings are not restored, keep the sealed segments so they are replayed on the next startup
+				CompletableFuture<Void> released = CompletableFuture.completedFuture(null);
+				if (checkpoint != null && (restoreOnFailure || result.getFailed().isEmpty()))
+				{
+					released = spool.release(checkpoint, result.getFailed());
+				}
+
+				return released.thenApply(v -> result.isFullySuccessful());
+			}, getCallbackExecutor());
 	}
 
 	/**
@@ -553,7 +753,7 @@ public class BotDetectorPlugin extends Plugin
 		});
 
 		String nameAtRequest = loggedPlayerName;
-		detectorClient.requestPlayerStats(nameAtRequest)
+		detectorClient.requestPlayerStats(nameAtRequest, forceRefresh)
 			.whenComplete((psm, ex) ->
 			{
 				// Player could have logged out in the mean time, don't update panel
@@ -612,6 +812,7 @@ public class BotDetectorPlugin extends Plugin
 				}
 				break;
 			case BotDetectorConfig.ANONYMOUS_UPLOADING_KEY:
+				updateSpoolOwner();
 				refreshPlayerStats(true);
 				SwingUtilities.invokeLater(() ->
 				{
@@ -635,6 +836,18 @@ public class BotDetectorPlugin extends Plugin
 			case BotDetectorConfig.ONLY_SEND_AT_LOGOUT_KEY:
 				updateTimeToAutoSend();
 				break;
+			case BotDetectorConfig.COMPRESS_UPLOADS_KEY:
+				detectorClient.setUploadCompressionEnabled(config.compressUploads());
+				break;
+			case BotDetectorConfig.PREDICTION_CACHE_MINUTES_KEY:
+				detectorClient.setPredictionCacheTtl(Duration.ofMinutes(config.predictionCacheMinutes()));
+				break;
+			case BotDetectorConfig.SAMPLE_TRAJECTORIES_KEY:
+				if (!config.sampleTrajectories())
+				{
+					trajectoryRecorder.clear();
+				}
+				break;
 		}
 	}
 
@@ -646,12 +859,28 @@ public class BotDetectorPlugin extends Plugin
 			case LOGIN_SCREEN:
 				if (loggedPlayerName != null)
 				{
-					flushPlayersToClient(false);
+					// Players still waiting to be captured should be part of the final flush
+					captureAllPendingPlayers(true);
+
+					// No more calls are expected until the next login, release the connections once the last flush is done
+					CompletableFuture<Boolean> flush = flushPlayersToClient(false);
+					if (flush != null)
+					{
+						flush.whenCompleteAsync((b, ex) -> detectorClient.evictIdleConnections(), getCallbackExecutor());
+					}
+					else
+					{
+						getCallbackExecutor().execute(detectorClient::evictIdleConnections);
+					}
+					captureThrottle.clear();
+					equipmentValueCache.invalidateAll();
+					trajectoryRecorder.clear();
 					persistentSightings.clear();
 					feedbackedPlayers.clear();
 					feedbackedPlayersText.clear();
 					flaggedPlayers.clear();
 					loggedPlayerName = null;
+					updateSpoolOwner();
 
 					refreshPlayerStats(true);
 					SwingUtilities.invokeLater(() -> panel.setWarningVisible(BotDetectorPanel.WarningLabel.NAME_ERROR, false));
@@ -659,16 +888,15 @@ public class BotDetectorPlugin extends Plugin
 				}
 				break;
 			case LOGGED_IN:
+				// Open a connection now so the first prediction or flush does not pay for the handshake
+				detectorClient.prewarmConnection();
+
 				// Reload Sighting cache when passing from LOGGED_IN -> LOADING -> LOGGED_IN
 				if (!isCurrentWorldBlocked && loggedPlayerName != null
 					&& previousTwoGameStates.contains(GameState.LOGGED_IN)
 					&& previousTwoGameStates.contains(GameState.LOADING))
 				{
-					Set<Player> allPlayers = getAllPlayers();
-					if (allPlayers != null)
-					{
-						allPlayers.forEach(this::processPlayer);
-					}
+					processAllPlayers();
 				}
 				break;
 		}
@@ -682,7 +910,7 @@ public class BotDetectorPlugin extends Plugin
 	}
 
 	/**
-	 * Processes the given {@code player}, creating and saving a {@link PlayerSighting}.
+	 * Processes the given {@code player}, creating and saving a {@link CompactPlayerSighting}.
 	 * @param player The player to process.
 	 */
 	private void processPlayer(Player player)
@@ -694,7 +922,7 @@ public class BotDetectorPlugin extends Plugin
 
 		String rawName = player.getName();
 
-		boolean invalidName = rawName == null || rawName.length() == 0 || rawName.charAt(0) == '#' || rawName.charAt(0) == '[';
+		boolean invalidName = !isValidPlayerName(rawName);
 
 		if (player == client.getLocalPlayer())
 		{
@@ -703,11 +931,13 @@ public class BotDetectorPlugin extends Plugin
 				if (invalidName)
 				{
 					loggedPlayerName = null;
+					updateSpoolOwner();
 					SwingUtilities.invokeLater(() -> panel.setWarningVisible(BotDetectorPanel.WarningLabel.NAME_ERROR, true));
 				}
 				else
 				{
 					loggedPlayerName = rawName;
+					updateSpoolOwner();
 					updateTimeToAutoSend();
 					refreshPlayerStats(true);
 					SwingUtilities.invokeLater(() -> panel.setWarningVisible(BotDetectorPanel.WarningLabel.NAME_ERROR, false));
@@ -722,74 +952,265 @@ public class BotDetectorPlugin extends Plugin
 			return;
 		}
 
-		String playerName = normalizePlayerName(rawName);
-		CaseInsensitiveString wrappedName = wrap(playerName);
+		// Captured in bulk on the next game ticks, so a scene load does not capture hundreds of players at once
+		pendingCaptures.add(player);
+	}
 
-		// Maybe using clientThread will help with whatever is going on with instance regions sneaking through?
-		// Theory is on some machines, maybe isInInstance() returns false, but player gets changed before getWorldLocation() runs?
-		// IDK man I can't ever seem to be able to repro this...
-		clientThread.invoke(() ->
+	@Subscribe
+	private void onGameTick(GameTick event)
+	{
+		if (config.sampleTrajectories() && client.getTickCount() % config.trajectorySampleTicks() == 0)
+		{
+			sampleTrajectories();
+		}
+
+		if (pendingCaptures.isEmpty())
+		{
+			return;
+		}
+
+		// Always capture at least one player, so the queue is guaranteed to drain
+		final long deadline = System.nanoTime() + CAPTURE_TICK_BUDGET_NANOS;
+		Iterator<Player> it = pendingCaptures.iterator();
+		do
+		{
+			Player player = it.next();
+			it.remove();
+			capturePlayer(player, true);
+		}
+		while (it.hasNext() && System.nanoTime() < deadline);
+	}
+
+	/**
+	 * Captures every player still in {@link #pendingCaptures}, regardless of {@link #CAPTURE_TICK_BUDGET_NANOS},
+	 * such as right before the final flush of a session. Must be called on the client thread.
+	 * @param throttled If {@code true}, skips the players recently captured in the same region, see {@link #captureThrottle}.
+	 */
+	private void captureAllPendingPlayers(boolean throttled)
+	{
+		Iterator<Player> it = pendingCaptures.iterator();
+		while (it.hasNext())
+		{
+			Player player = it.next();
+			it.remove();
+			capturePlayer(player, throttled);
+		}
+	}
+
+	/**
+	 * Checks if the given raw player name can be used for sightings, as names are not always loaded yet.
+	 * @param rawName The player name as given by {@link Player#getName()}.
+	 * @return {@code true} if the name is loaded and not a placeholder.
+	 */
+	private static boolean isValidPlayerName(String rawName)
+	{
+		return rawName != null && rawName.length() > 0 && rawName.charAt(0) != '#' && rawName.charAt(0) != '[';
+	}
+
+	/**
+	 * Records the position of every player in the scene into {@link #trajectoryRecorder}, without capturing them.
+	 * Stops early once {@link #TRAJECTORY_TICK_BUDGET_NANOS} is spent, the next sample resuming from {@link #trajectoryWalkStart}.
+	 * Must be called on the client thread.
+	 */
+	private void sampleTrajectories()
+	{
+		if (isCurrentWorldBlocked || loggedPlayerName == null)
+		{
+			return;
+		}
+
+		final int tick = client.getTickCount();
+		final long now = System.currentTimeMillis();
+		final long deadline = System.nanoTime() + TRAJECTORY_TICK_BUDGET_NANOS;
+		final Player localPlayer = client.getLocalPlayer();
+		trajectoryWalkStart = sceneWalker.walkFrom(client.getTopLevelWorldView(), trajectoryWalkStart, player ->
+		{
+			String rawName = player.getName();
+			if (player != localPlayer && isValidPlayerName(rawName))
 			{
-				WorldView wv = player.getWorldView();
-				boolean instanced = wv != null && wv.isInstance();
-				boolean isBoat = wv != null && wv.getId() != WorldView.TOPLEVEL && client != null && client.getTopLevelWorldView() != null;
+				boolean isBoat = isOnBoat(player);
+				WorldPoint wp = getSightingLocation(player, isBoat);
+				trajectoryRecorder.record(wrap(normalizePlayerName(rawName)),
+					wp.getX(), wp.getY(), wp.getPlane() + (isBoat ? 64 : 0), tick, now);
+			}
+			return System.nanoTime() < deadline;
+		});
+	}
 
-				WorldPoint wp = player.getWorldLocation();
-				if (isBoat)
-				{
-					// Appears to give us the center of the boat, good enough for now
-					WorldEntity we = client.getTopLevelWorldView().worldEntities().byIndex(wv.getId());
-					wp = WorldPoint.fromLocalInstance(client, we.getLocalLocation());
-				}
-				else if (instanced)
-				{
-					wp = WorldPoint.fromLocalInstance(client, player.getLocalLocation());
-				}
+	/**
+	 * Attaches the trajectories recorded since the last flush to the latest sighting of each player in {@code sightings}.
+	 * Players without such a sighting, such as those staying in view since their last capture, get a copy of their
+	 * last sighting from {@link #persistentSightings} moved to the end of their trajectory instead.
+	 * @param sightings The sightings about to be flushed, updated in place.
+	 */
+	private void attachTrajectories(List<CompactPlayerSighting> sightings)
+	{
+		List<CaseInsensitiveString> movedPlayers = trajectoryRecorder.getMovedPlayers();
+		if (movedPlayers.isEmpty())
+		{
+			return;
+		}
 
-				if (wp.getRegionID() > MAX_ALLOWED_REGION_ID)
-				{
-					log.warn(String.format("Player sighting with invalid region ID. (name:'%s' x:%d y:%d z:%d r:%d)",
-						playerName, wp.getX(), wp.getY(), wp.getPlane(), wp.getRegionID()));
-					return;
-				}
+		Map<CaseInsensitiveString, Integer> latestSightings = new HashMap<>();
+		for (int i = 0; i < sightings.size(); i++)
+		{
+			CaseInsensitiveString name = wrap(sightings.get(i).getPlayerName());
+			Integer latest = latestSightings.get(name);
+			if (latest == null
+				|| sightings.get(latest).getTimestampEpochSeconds() <= sightings.get(i).getTimestampEpochSeconds())
+			{
+				latestSightings.put(name, i);
+			}
+		}
 
-				// Get player's equipment item ids (botanicvelious/Equipment-Inspector)
-				Map<KitType, Integer> equipment = new HashMap<>();
-				long geValue = 0;
-				for (KitType kitType : KitType.values())
+		for (CaseInsensitiveString name : movedPlayers)
+		{
+			Integer latest = latestSightings.get(name);
+			// Sightings restored after a failed upload still carry their trajectory, which must not be replaced
+			if (latest != null && sightings.get(latest).getTrajectory() == null)
+			{
+				Trajectory trajectory = trajectoryRecorder.take(name);
+				if (trajectory != null)
 				{
-					int itemId = player.getPlayerComposition().getEquipmentId(kitType);
-					if (itemId >= 0)
-					{
-						equipment.put(kitType, itemId);
-						// Use GE price, not Wiki price
-						geValue += itemManager.getItemPriceWithSource(itemId, false);
-					}
+					sightings.set(latest, sightings.get(latest).toBuilder().trajectory(trajectory).build());
 				}
+				continue;
+			}
 
-				PlayerSighting p = PlayerSighting.builder()
-					.playerName(playerName)
-					.regionID(wp.getRegionID())
-					.worldX(wp.getX())
-					.worldY(wp.getY())
-					// If coordinate comes from a boat, add 64 to the plane (z) coordinate
-					// We'll handle it on the server later
-					.plane(wp.getPlane() + (isBoat ? 64 : 0))
-					.equipment(equipment)
-					.equipmentGEValue(geValue)
-					.timestamp(Instant.now())
-					.worldNumber(currentWorldNumber)
-					.inMembersWorld(isCurrentWorldMembers)
-					.inPVPWorld(isCurrentWorldPVP)
-					.build();
-
-				synchronized (sightingTable)
-				{
-					sightingTable.put(wrappedName, p.getRegionID(), p);
-				}
-				persistentSightings.put(wrappedName, p);
+			CompactPlayerSighting last = persistentSightings.get(name);
+			if (last == null || last.getWorldNumber() != currentWorldNumber)
+			{
+				// Kept until the player is captured on this world
+				continue;
 			}
-		);
+
+			Trajectory trajectory = trajectoryRecorder.take(name);
+			if (trajectory == null)
+			{
+				continue;
+			}
+
+			WorldPoint end = new WorldPoint(trajectory.getEndX(), trajectory.getEndY(), trajectory.getEndPlane());
+			if (end.getRegionID() > MAX_ALLOWED_REGION_ID)
+			{
+				continue;
+			}
+
+			sightings.add(last.toBuilder()
+				.regionID(end.getRegionID())
+				.worldX(end.getX())
+				.worldY(end.getY())
+				.plane(end.getPlane())
+				.timestampEpochSeconds(trajectory.getEndEpochMillis() / 1000)
+				.trajectory(trajectory)
+				.build());
+		}
+	}
+
+	/**
+	 * Creates and saves a {@link CompactPlayerSighting} for the given {@code player}. Must be called on the client thread.
+	 * @param player The player to capture, queued by {@link #processPlayer(Player)}.
+	 * @param throttled If {@code true}, skips the player if recently captured in the same region, see {@link #captureThrottle}.
+	 */
+	private void capturePlayer(Player player, boolean throttled)
+	{
+		// World could have become blocked since the player was queued
+		String rawName = player.getName();
+		if (isCurrentWorldBlocked || rawName == null)
+		{
+			return;
+		}
+
+		String playerName = normalizePlayerName(rawName);
+		CaseInsensitiveString wrappedName = wrap(playerName);
+
+		boolean isBoat = isOnBoat(player);
+		WorldPoint wp = getSightingLocation(player, isBoat);
+
+		if (wp.getRegionID() > MAX_ALLOWED_REGION_ID)
+		{
+			log.warn(String.format("Player sighting with invalid region ID. (name:'%s' x:%d y:%d z:%d r:%d)",
+				playerName, wp.getX(), wp.getY(), wp.getPlane(), wp.getRegionID()));
+			return;
+		}
+
+		// Throttled on the reported region, as instanced regions can differ from the real one
+		if (throttled
+			&& !captureThrottle.tryCapture(playerName, wp.getRegionID(), client.getTickCount(), config.captureWindowTicks()))
+		{
+			return;
+		}
+
+		// Get player's equipment item ids (botanicvelious/Equipment-Inspector)
+		int[] equipment = new int[CompactPlayerSighting.EQUIPMENT_SLOTS];
+		Arrays.fill(equipment, CompactPlayerSighting.EMPTY_SLOT);
+		for (KitType kitType : KIT_TYPES)
+		{
+			int itemId = player.getPlayerComposition().getEquipmentId(kitType);
+			if (itemId >= 0)
+			{
+				equipment[kitType.ordinal()] = itemId;
+			}
+		}
+		long geValue = equipmentValueCache.getValue(equipment);
+
+		CompactPlayerSighting p = CompactPlayerSighting.builder()
+			.playerName(playerName)
+			.regionID(wp.getRegionID())
+			.worldX(wp.getX())
+			.worldY(wp.getY())
+			// If coordinate comes from a boat, add 64 to the plane (z) coordinate
+			// We'll handle it on the server later
+			.plane(wp.getPlane() + (isBoat ? 64 : 0))
+			.equipment(equipment)
+			.equipmentGEValue(geValue)
+			.timestampEpochSeconds(System.currentTimeMillis() / 1000)
+			.worldNumber(currentWorldNumber)
+			.inMembersWorld(isCurrentWorldMembers)
+			.inPVPWorld(isCurrentWorldPVP)
+			.build();
+
+		synchronized (sightingSpoolLock)
+		{
+			sightingBuffer.put(wrappedName, p);
+			SightingSpool spool = sightingSpool;
+			if (spool != null)
+			{
+				spool.append(p);
+			}
+		}
+		persistentSightings.put(wrappedName, p);
+	}
+
+	/**
+	 * Checks if the given {@code player} is on a boat, whose sightings are reported on the plane shifted by 64.
+	 */
+	private boolean isOnBoat(Player player)
+	{
+		WorldView wv = player.getWorldView();
+		return wv != null && wv.getId() != WorldView.TOPLEVEL && client != null && client.getTopLevelWorldView() != null;
+	}
+
+	/**
+	 * Gets the location to report for the given {@code player}, translating instances and boats to the real world.
+	 * @param player The player to locate.
+	 * @param isBoat The result of {@link #isOnBoat(Player)} for the player.
+	 * @return The player's location in the real world.
+	 */
+	private WorldPoint getSightingLocation(Player player, boolean isBoat)
+	{
+		WorldView wv = player.getWorldView();
+		if (isBoat)
+		{
+			// Appears to give us the center of the boat, good enough for now
+			WorldEntity we = client.getTopLevelWorldView().worldEntities().byIndex(wv.getId());
+			return WorldPoint.fromLocalInstance(client, we.getLocalLocation());
+		}
+		else if (wv != null && wv.isInstance())
+		{
+			return WorldPoint.fromLocalInstance(client, player.getLocalLocation());
+		}
+		return player.getWorldLocation();
 	}
 
 	@Subscribe
@@ -1143,6 +1564,16 @@ public class BotDetectorPlugin extends Plugin
 		}
 	}
 
+	/**
+	 * Gets the executor to run post-response processing on.
+	 * @return {@link #callbackExecutor}, or a direct executor while the plugin is shut down.
+	 */
+	public Executor getCallbackExecutor()
+	{
+		final ThreadPoolExecutor executor = callbackExecutor;
+		return executor != null ? executor : MoreExecutors.directExecutor();
+	}
+
 	/**
 	 * Sets various class variables and panel warnings according to what {@link Client#getWorld()} returns.
 	 */
@@ -1157,6 +1588,26 @@ public class BotDetectorPlugin extends Plugin
 			panel.setWarningVisible(BotDetectorPanel.WarningLabel.BLOCKED_WORLD, isCurrentWorldBlocked));
 	}
 
+	/**
+	 * Tells {@link #sightingSpool} who the sightings are now being captured for, according to {@link #loggedPlayerName}
+	 * and {@link BotDetectorConfig#enableAnonymousUploading()}, and puts back the sightings that previous sessions
+	 * of the same uploader could not upload.
+	 */
+	private void updateSpoolOwner()
+	{
+		final SightingSpool spool = sightingSpool;
+		if (spool == null)
+		{
+			return;
+		}
+
+		String playerName = loggedPlayerName;
+		spool.setOwner(playerName != null ? new SightingSpool.Owner(playerName, config.enableAnonymousUploading()) : null)
+			.thenAccept(replayed ->
+				// Reversed so the most recent sighting for a given player and region is the one that is kept
+				sightingBuffer.restore(Lists.reverse(replayed)));
+	}
+
 	/**
 	 * Gets the name that should be used when an uploader name is required,
 	 * according to {@link BotDetectorConfig#enableAnonymousUploading()}.
@@ -1227,31 +1678,17 @@ public class BotDetectorPlugin extends Plugin
 		return prepend != null ? ColorUtil.prependColorTag(option, prepend) : option;
 	}
 
-	private Set<Player> getAllPlayers()
-	{
-		WorldView top = client.getTopLevelWorldView();
-		if (top == null)
-		{
-			return null;
-		}
-
-		HashSet<Player> pSet = new HashSet<>();
-		getAllPlayersRecurse(top, pSet);
-
-		return pSet;
-	}
-
-	private void getAllPlayersRecurse(WorldView wv, HashSet<Player> pSet)
+	/**
+	 * Runs {@link #processPlayer(Player)} on every player in the top level world view and its nested world views.
+	 * @return {@code false} if there is no top level world view to process, {@code true} otherwise.
+	 */
+	private boolean processAllPlayers()
 	{
-		if (wv == null)
+		return sceneWalker.walk(client.getTopLevelWorldView(), player ->
 		{
-			return;
-		}
-		wv.players().stream().forEach(pSet::add);
-		for (WorldView sub : wv.worldViews())
-		{
-			getAllPlayersRecurse(sub, pSet);
-		}
+			processPlayer(player);
+			return true;
+		});
 	}
 
 	/**
@@ -1306,7 +1743,7 @@ public class BotDetectorPlugin extends Plugin
 	}
 
 	/**
-	 * Manually force a full rescan of all players in {@link WorldView#players()} using {@link #processPlayer(Player)}.
+	 * Manually force a full rescan of all players in {@link WorldView#players()} using {@link #processPlayer(Player)}, capturing them right away.
 	 */
 	private void manualSightCommand()
 	{
@@ -1321,10 +1758,10 @@ public class BotDetectorPlugin extends Plugin
 		}
 		else
 		{
-			Set<Player> allPlayers = getAllPlayers();
-			if (allPlayers != null)
+			if (processAllPlayers())
 			{
-				allPlayers.forEach(this::processPlayer);
+				// Captured right away and even if recently captured, as the user explicitly asked for it
+				captureAllPendingPlayers(false);
 				sendChatStatusMessage("Player sightings refreshed.", true);
 			}
 			else
@@ -1445,6 +1882,70 @@ public class BotDetectorPlugin extends Plugin
 		}
 	}
 
+	/**
+	 * Displays diagnostic counters from the plugin and {@link BotDetectorClient#getDiagnostics()} in the chat.
+	 */
+	private void diagnosticsCommand()
+	{
+		sendChatStatusMessage("Buffered sightings: " + sightingBuffer.size()
+			+ ", pending captures: " + pendingCaptures.size()
+			+ ", repeat captures skipped: " + captureThrottle.getSkipped(), true);
+		sendChatStatusMessage("Players with sampled movement: " + trajectoryRecorder.size(), true);
+		final CacheStats equipmentStats = equipmentValueCache.getStats();
+		sendChatStatusMessage(String.format("Equipment values: %d reused, %d computed",
+			equipmentStats.hitCount(), equipmentStats.missCount()), true);
+		final ThreadPoolExecutor executor = callbackExecutor;
+		if (executor != null)
+		{
+			sendChatStatusMessage(String.format("Callback executor: %d queued, %d active, %d completed, %d overflowed",
+				executor.getQueue().size(), executor.getActiveCount(), executor.getCompletedTaskCount(),
+				callbackExecutorOverflows.get()), true);
+		}
+		detectorClient.getDiagnostics().forEach(line -> sendChatStatusMessage(line, true));
+	}
+
+	/**
+	 * Requests predictions for every player in {@link #persistentSightings} using {@link BotDetectorClient#requestPredictions(Collection)},
+	 * filling the prediction cache so the panel shows them right away, then displays a summary in the chat.
+	 */
+	private void predictAllCommand()
+	{
+		List<String> names = persistentSightings.values().stream()
+			.map(CompactPlayerSighting::getPlayerName)
+			.collect(Collectors.toList());
+		if (names.isEmpty())
+		{
+			sendChatStatusMessage("No players sighted yet this session.", true);
+			return;
+		}
+
+		if (!predictAllInFlight.compareAndSet(false, true))
+		{
+			sendChatStatusMessage("Already requesting predictions, please wait.", true);
+			return;
+		}
+
+		sendChatStatusMessage("Requesting predictions for " + names.size() + " players...", true);
+		detectorClient.requestPredictions(names).whenComplete((result, ex) ->
+		{
+			predictAllInFlight.set(false);
+			if (ex != null)
+			{
+				log.warn("Error requesting predictions", ex);
+				sendChatStatusMessage("Error requesting predictions!", true);
+				return;
+			}
+
+			sendChatStatusMessage(String.format("Predictions: %d obtained, %d not found, %d failed.",
+				result.getPredictions().size(), result.getNotFound().size(), result.getFailed().size()), true);
+			if (!result.isFullySuccessful())
+			{
+				log.warn("Could not obtain predictions for {}", result.getFailed().keySet(),
+					result.getFailed().values().iterator().next());
+			}
+		});
+	}
+
 	//endregion
 
 
@@ -26,39 +26,67 @@
 package com.botdetector.http;
 
 import com.botdetector.BotDetectorPlugin;
+import static com.botdetector.BotDetectorPlugin.normalizeAndWrapPlayerName;
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.CompactPlayerSighting;
 import com.botdetector.model.FeedbackPredictionLabel;
-import com.botdetector.model.PlayerSighting;
+import com.botdetector.model.LabelIndex;
 import com.botdetector.model.PlayerStats;
 import com.botdetector.model.PlayerStatsType;
 import com.botdetector.model.Prediction;
+import com.botdetector.model.PredictionBatchResult;
+import com.botdetector.model.SightingUploadResult;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
@@ -66,15 +94,19 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.kit.KitType;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
 
 /**
  * Class containing various methods to interact with the Bot Detector API.
@@ -89,26 +121,92 @@ public class BotDetectorClient
 		System.getProperty("BotDetectorAPIPath", "https://api.prd.osrsbotdetector.com"));
 	private static final Supplier<String> CURRENT_EPOCH_SUPPLIER = () -> String.valueOf(Instant.now().getEpochSecond());
 
+	/** How much of a rejected compressed upload's error body is inspected by {@link #isEncodingRejection(Response)}. **/
+	private static final long ENCODING_ERROR_PEEK_BYTES = 4096;
+
 	private static final long LABELS_CACHE_SECONDS = 60 * 60; // One hour
+	/** Labels older than this are refreshed in the background, while still being served. **/
+	private static final long LABELS_REFRESH_AHEAD_SECONDS = LABELS_CACHE_SECONDS * 4 / 5;
+	private static final File LABELS_FILE = new File(BotDetectorPlugin.BOT_DETECTOR_DIR, "labels.json");
+
+	private static final Type PREDICTIONS_TYPE = new TypeToken<Collection<Prediction>>()
+	{
+	}.getType();
+	private static final Type LABELS_TYPE = new TypeToken<Collection<LabelAPIItem>>()
+	{
+	}.getType();
+	private static final Type PLAYER_STATS_TYPE = new TypeToken<Collection<PlayerStatsAPIItem>>()
+	{
+	}.getType();
+
+	private static final int PREDICTION_CACHE_MAX_SIZE = 500;
+
+	private static final int PREDICTIONS_MAX_CONCURRENT_REQUESTS = 4;
+
+	private static final int PLAYER_STATS_CACHE_MAX_SIZE = 200;
+	private static final Duration PLAYER_STATS_CACHE_TTL = Duration.ofSeconds(120);
+	/** Players with no stats are unlikely to get some soon, keep them longer. **/
+	private static final Duration PLAYER_STATS_NEGATIVE_CACHE_TTL = Duration.ofSeconds(300);
+
+	/*
+	 * Connection and dispatcher limits, overridable through system properties like the API path.
+	 */
+	private static final int MAX_IDLE_CONNECTIONS = Integer.getInteger("BotDetectorMaxIdleConnections", 4);
+	private static final int CONNECTION_KEEP_ALIVE_SECONDS = Integer.getInteger("BotDetectorKeepAliveSeconds", 300);
+	private static final int INTERACTIVE_MAX_REQUESTS = Integer.getInteger("BotDetectorInteractiveMaxRequests", 8);
+	private static final int BACKGROUND_MAX_REQUESTS = Integer.getInteger("BotDetectorBackgroundMaxRequests", 4);
+	/** Keeps HTTP/2 connections alive between calls, and detects dead ones before a call is sent on them. **/
+	private static final int HTTP2_PING_INTERVAL_SECONDS = 30;
+	/** Minimum time between two prewarms, so that repeated loading screens or an unreachable API do not send a request each time. **/
+	private static final Duration PREWARM_COOLDOWN = Duration.ofSeconds(60);
+
+	private static final int MAX_GET_RETRIES = 2;
+	private static final Duration GET_RETRY_BASE_DELAY = Duration.ofMillis(500);
+	private static final Duration GET_RETRY_MAX_DELAY = Duration.ofSeconds(5);
 
 	@Getter
 	@AllArgsConstructor
 	private enum ApiPath
 	{
-		DETECTION("v2/report"),
-		PLAYER_STATS_REPORTS("v2/player/report/score"),
-		PLAYER_STATS_FEEDBACK("v2/player/feedback/score"),
-		PREDICTION("v2/player/prediction"),
-		FEEDBACK("v2/feedback"),
-		LABELS("v2/labels"),
-		VERIFY_DISCORD("site/discord_user")
+		DETECTION("v2/report", true),
+		PLAYER_STATS_REPORTS("v2/player/report/score", true),
+		PLAYER_STATS_FEEDBACK("v2/player/feedback/score", true),
+		PREDICTION("v2/player/prediction", false),
+		FEEDBACK("v2/feedback", false),
+		LABELS("v2/labels", false),
+		VERIFY_DISCORD("site/discord_user", false)
 		;
 
 		final String path;
+		/**
+		 * Whether the route is sent through {@link BotDetectorClient#backgroundHttpClient}, so it never delays user initiated calls.
+		 */
+		final boolean background;
 	}
 
+	/**
+	 * Client for the interactive lane: predictions, labels, feedback and verification.
+	 */
 	public OkHttpClient okHttpClient;
 
+	/**
+	 * Client for the background lane: sighting uploads and player stats. Shares its connection pool with {@link #okHttpClient},
+	 * but has its own dispatcher so queued background calls never hold back interactive ones.
+	 */
+	private final OkHttpClient backgroundHttpClient;
+
+	/**
+	 * Connection pool dedicated to the Bot Detector API, separate from RuneLite's shared client.
+	 */
+	private final ConnectionPool connectionPool;
+
+	private final HttpUrl baseUrl;
+
+	/**
+	 * Where the last fetched labels are kept between sessions.
+	 */
+	private final File labelsFile;
+
 	@Inject
 	private Gson gson;
 
@@ -119,8 +217,80 @@ public class BotDetectorClient
 	private final Supplier<String> pluginVersionSupplier = () ->
 		(pluginVersion != null && !pluginVersion.isEmpty()) ? pluginVersion : API_VERSION_FALLBACK_WORD;
 
-	private Collection<LabelAPIItem> cachedLabels = null;
-	private Instant lastTimeCachedLabels = Instant.MIN;
+	/**
+	 * Whether {@link #sendSightings(Collection, String, boolean)} should gzip its request body.
+	 */
+	@Getter
+	private boolean uploadCompressionEnabled;
+
+	/**
+	 * Set when the API rejects a gzip compressed upload, uploads then fall back to identity encoding.
+	 */
+	private volatile boolean uploadCompressionRejected;
+
+	/**
+	 * One breaker per route, so that a failing route does not block the others.
+	 */
+	private final Map<ApiPath, CircuitBreaker> circuitBreakers = new EnumMap<>(ApiPath.class);
+
+	private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(
+		new ThreadFactoryBuilder().setNameFormat("bot-detector-retry").setDaemon(true).build());
+
+	/**
+	 * Predictions requested with a breakdown, kept past {@link #predictionCacheTtl} so they can be shown while being refreshed.
+	 */
+	private final Cache<CaseInsensitiveString, CachedPrediction> predictionCache = CacheBuilder.newBuilder()
+		.maximumSize(PREDICTION_CACHE_MAX_SIZE)
+		.build();
+
+	/**
+	 * How long a cached prediction is returned by {@link #requestPrediction(String, boolean)} without hitting the API.
+	 */
+	@Getter
+	@Setter
+	private Duration predictionCacheTtl = Duration.ZERO;
+
+	/**
+	 * Incremented on every prediction invalidation, guarded by {@link #predictionCache}. A fetch only caches its result
+	 * if no invalidation happened since it started, as the prediction it got may predate the change behind the invalidation.
+	 */
+	private long predictionCacheGeneration;
+
+	/**
+	 * Runs post-response processing, such as merging labels and aggregating stats, off the OkHttp dispatcher threads.
+	 */
+	@Setter
+	private volatile Executor callbackExecutor = MoreExecutors.directExecutor();
+
+	/**
+	 * Recently requested player stats, including players with no stats.
+	 */
+	private final Cache<CaseInsensitiveString, CachedPlayerStats> playerStatsCache = CacheBuilder.newBuilder()
+		.maximumSize(PLAYER_STATS_CACHE_MAX_SIZE)
+		.expireAfterWrite(PLAYER_STATS_NEGATIVE_CACHE_TTL.getSeconds(), TimeUnit.SECONDS)
+		.build();
+
+	/**
+	 * Share identical in-flight calls, keyed by the parameters of their {@link ApiPath}.
+	 */
+	private final SingleFlight<List<Object>, Prediction> predictionFlights = new SingleFlight<>();
+	private final SingleFlight<CaseInsensitiveString, Map<PlayerStatsType, PlayerStats>> playerStatsFlights = new SingleFlight<>();
+	private final SingleFlight<ApiPath, LabelIndex> labelsFlights = new SingleFlight<>();
+
+	/**
+	 * The last known labels, replaced as a whole so readers always see a consistent list and fetch time.
+	 */
+	private volatile CachedLabels cachedLabels = null;
+
+	/**
+	 * The fetch time of the labels last written by {@link #persistLabels(CachedLabels)}, guarded by {@code this}.
+	 */
+	private Instant persistedLabelsFetchedAt = Instant.MIN;
+
+	/**
+	 * The last time {@link #prewarmConnection()} sent a request, only accessed from the client thread.
+	 */
+	private Instant lastPrewarm = Instant.MIN;
 
 	/**
 	 * Constructs a base URL for the given {@code path}.
@@ -130,7 +300,7 @@ public class BotDetectorClient
 	 */
 	private HttpUrl getUrl(ApiPath path, boolean addVersion)
 	{
-		HttpUrl.Builder builder = BASE_HTTP_URL.newBuilder();
+		HttpUrl.Builder builder = baseUrl.newBuilder();
 
 		if (addVersion)
 		{
@@ -153,8 +323,24 @@ public class BotDetectorClient
 	@Inject
 	public BotDetectorClient(OkHttpClient rlClient)
 	{
+		this(rlClient, BASE_HTTP_URL, LABELS_FILE);
+	}
+
+	/**
+	 * Creates a client for the API at the given base URL, such as a local stand-in for the API.
+	 * @param rlClient The client to derive the API clients from.
+	 * @param baseUrl The base URL of the API.
+	 * @param labelsFile The file to persist the prediction labels to.
+	 */
+	BotDetectorClient(OkHttpClient rlClient, HttpUrl baseUrl, File labelsFile)
+	{
+		this.baseUrl = baseUrl;
+		this.labelsFile = labelsFile;
+		connectionPool = new ConnectionPool(MAX_IDLE_CONNECTIONS, CONNECTION_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
 		okHttpClient = rlClient.newBuilder()
-			.pingInterval(0, TimeUnit.SECONDS)
+			.connectionPool(connectionPool)
+			.dispatcher(newDispatcher("bot-detector-interactive-%d", INTERACTIVE_MAX_REQUESTS))
+			.pingInterval(HTTP2_PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
 			.connectTimeout(30, TimeUnit.SECONDS)
 			.readTimeout(30, TimeUnit.SECONDS)
 			.addNetworkInterceptor(chain ->
@@ -167,47 +353,251 @@ public class BotDetectorClient
 				return chain.proceed(headerRequest);
 			})
 			.build();
+
+		backgroundHttpClient = okHttpClient.newBuilder()
+			.dispatcher(newDispatcher("bot-detector-background-%d", BACKGROUND_MAX_REQUESTS))
+			.build();
+
+		for (ApiPath path : ApiPath.values())
+		{
+			circuitBreakers.put(path, new CircuitBreaker(path.name()));
+		}
+	}
+
+	/**
+	 * Creates a dispatcher with its own named daemon threads and request limits, all requests going to the same host.
+	 * @param threadNameFormat The name format of the dispatcher's threads.
+	 * @param maxRequests The maximum number of requests running at once.
+	 * @return The new dispatcher.
+	 */
+	private static Dispatcher newDispatcher(String threadNameFormat, int maxRequests)
+	{
+		Dispatcher dispatcher = new Dispatcher(new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+			new SynchronousQueue<>(), new ThreadFactoryBuilder().setNameFormat(threadNameFormat).setDaemon(true).build()));
+		dispatcher.setMaxRequests(maxRequests);
+		dispatcher.setMaxRequestsPerHost(maxRequests);
+		return dispatcher;
+	}
+
+	/**
+	 * Enqueues the given request for the given {@code path} through its {@link CircuitBreaker}.
+	 * While the breaker is open, {@code callback} immediately fails with a {@link CircuitOpenException}.
+	 * {@code GET} requests are retried a few times with a jittered backoff on network errors, 5xx and 429 responses.
+	 * @param path The route the request is for.
+	 * @param request The request to send.
+	 * @param callback The callback to notify with the final outcome of the request.
+	 */
+	private void enqueue(ApiPath path, Request request, Callback callback)
+	{
+		enqueue(path, request, callback, 0);
+	}
+
+	private void enqueue(ApiPath path, Request request, Callback callback, int attempt)
+	{
+		CircuitBreaker breaker = circuitBreakers.get(path);
+		Call call = (path.isBackground() ? backgroundHttpClient : okHttpClient).newCall(request);
+		if (!breaker.tryAcquire())
+		{
+			callback.onFailure(call, new CircuitOpenException("API route '" + path.getPath()
+				+ "' is unavailable, retrying in " + breaker.getRemainingOpenTime().getSeconds() + " seconds"));
+			return;
+		}
+
+		call.enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				breaker.onFailure(null);
+				if (call.isCanceled() || !scheduleRetry(path, request, callback, attempt, null))
+				{
+					callback.onFailure(call, e);
+				}
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) throws IOException
+			{
+				int code = response.code();
+				if (code < 500 && code != 429)
+				{
+					breaker.onSuccess();
+					callback.onResponse(call, response);
+					return;
+				}
+
+				Duration retryAfter = CircuitBreaker.parseRetryAfter(response.header("Retry-After"));
+				breaker.onFailure(retryAfter);
+				if (scheduleRetry(path, request, callback, attempt, retryAfter))
+				{
+					response.close();
+					return;
+				}
+				callback.onResponse(call, response);
+			}
+		});
 	}
 
 	/**
-	 * Sends a single {@link PlayerSighting} to the API to be persisted in the Bot Detector database.
+	 * Utility function for {@link #enqueue(ApiPath, Request, Callback)}.
+	 * Schedules another attempt of the given request if it is a {@code GET} with retries left and its breaker is not open.
+	 * The attempt waits at least for the delay requested through {@code Retry-After}, unless it exceeds {@link #GET_RETRY_MAX_DELAY}.
+	 * @return {@code true} if a retry was scheduled, {@code false} if the caller should report the failure.
+	 */
+	private boolean scheduleRetry(ApiPath path, Request request, Callback callback, int attempt, Duration retryAfter)
+	{
+		if (!"GET".equals(request.method()) || attempt >= MAX_GET_RETRIES
+			|| circuitBreakers.get(path).getState() == CircuitBreaker.State.OPEN)
+		{
+			return false;
+		}
+
+		Duration delay = CircuitBreaker.jitteredBackoff(attempt, GET_RETRY_BASE_DELAY, GET_RETRY_MAX_DELAY);
+		if (retryAfter != null)
+		{
+			if (retryAfter.compareTo(GET_RETRY_MAX_DELAY) > 0)
+			{
+				return false;
+			}
+			delay = retryAfter.compareTo(delay) > 0 ? retryAfter : delay;
+		}
+
+		retryExecutor.schedule(() -> enqueue(path, request, callback, attempt + 1), delay.toMillis(), TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	/**
+	 * Sends a single {@link CompactPlayerSighting} to the API to be persisted in the Bot Detector database.
 	 * @param sighting The sighting to send.
 	 * @param uploaderName The user's player name (See {@link BotDetectorPlugin#getUploaderName()}).
 	 * @param manual Whether or not the given sighting is to be manually flagged as a bot by the user.
 	 * @return A future that will eventually return a boolean indicating success.
 	 */
-	public CompletableFuture<Boolean> sendSighting(PlayerSighting sighting, String uploaderName, boolean manual)
+	public CompletableFuture<Boolean> sendSighting(CompactPlayerSighting sighting, String uploaderName, boolean manual)
 	{
 		return sendSightings(ImmutableList.of(sighting), uploaderName, manual);
 	}
 
 	/**
-	 * Sends a collection of {@link PlayerSighting}s to the API to be persisted in the Bot Detector database.
+	 * Sends a collection of {@link CompactPlayerSighting}s to the API to be persisted in the Bot Detector database.
+	 * Sightings are written straight into the request body in the format expected by the API.
 	 * @param sightings The collection of sightings to send.
 	 * @param uploaderName The user's player name (See {@link BotDetectorPlugin#getUploaderName()}).
 	 * @param manual Whether or not the given sightings are to be manually flagged as bots by the user.
 	 * @return A future that will eventually return a boolean indicating success.
 	 */
-	public CompletableFuture<Boolean> sendSightings(Collection<PlayerSighting> sightings, String uploaderName, boolean manual)
+	public CompletableFuture<Boolean> sendSightings(Collection<CompactPlayerSighting> sightings, String uploaderName, boolean manual)
+	{
+		return sendSightings(sightings, uploaderName, manual, uploadCompressionEnabled && !uploadCompressionRejected);
+	}
+
+	/**
+	 * Sends a list of {@link CompactPlayerSighting}s to the API split into chunks of at most {@code chunkSize} sightings,
+	 * with at most {@code maxConcurrentChunks} chunks being uploaded at the same time.
+	 * The outcome of each chunk is tracked separately, so a failing chunk does not fail the whole upload.
+	 * @param sightings The list of sightings to send.
+	 * @param uploaderName The user's player name (See {@link BotDetectorPlugin#getUploaderName()}).
+	 * @param manual Whether or not the given sightings are to be manually flagged as bots by the user.
+	 * @param chunkSize The maximum number of sightings per request.
+	 * @param maxConcurrentChunks The maximum number of requests in flight at once.
+	 * @return A future that will eventually return which sightings were uploaded and which were not.
+	 */
+	public CompletableFuture<SightingUploadResult> sendSightingsInChunks(List<CompactPlayerSighting> sightings,
+		String uploaderName, boolean manual, int chunkSize, int maxConcurrentChunks)
 	{
-		List<PlayerSightingWrapper> wrappedList = sightings.stream()
-			.map(p -> new PlayerSightingWrapper(uploaderName, manual, p)).collect(Collectors.toList());
+		List<List<CompactPlayerSighting>> chunks = Lists.partition(sightings, Math.max(1, chunkSize));
+		Throwable[] chunkErrors = new Throwable[chunks.size()];
+		AtomicInteger nextChunk = new AtomicInteger();
 
-		Gson bdGson = gson.newBuilder().enableComplexMapKeySerialization()
-			.registerTypeAdapter(PlayerSightingWrapper.class, new PlayerSightingWrapperSerializer())
-			.registerTypeAdapter(KitType.class, new KitTypeSerializer())
-			.registerTypeAdapter(Boolean.class, new BooleanToZeroOneConverter())
-			.registerTypeAdapter(Instant.class, new InstantSecondsConverter())
-			.create();
+		int workers = Math.max(1, Math.min(maxConcurrentChunks, chunks.size()));
+		CompletableFuture<?>[] workerFutures = new CompletableFuture<?>[workers];
+		for (int i = 0; i < workers; i++)
+		{
+			workerFutures[i] = sendNextChunk(chunks, chunkErrors, nextChunk, uploaderName, manual);
+		}
 
-		Request request = new Request.Builder()
+		return CompletableFuture.allOf(workerFutures).thenApply(v ->
+		{
+			List<CompactPlayerSighting> uploaded = new ArrayList<>();
+			List<CompactPlayerSighting> failed = new ArrayList<>();
+			List<CompactPlayerSighting> rejected = new ArrayList<>();
+			Throwable firstError = null;
+			for (int i = 0; i < chunks.size(); i++)
+			{
+				Throwable error = chunkErrors[i];
+				if (error == null)
+				{
+					uploaded.addAll(chunks.get(i));
+					continue;
+				}
+
+				if (firstError == null)
+				{
+					firstError = error;
+				}
+				(error instanceof ValidationException ? rejected : failed).addAll(chunks.get(i));
+			}
+			return new SightingUploadResult(uploaded, failed, rejected, firstError);
+		});
+	}
+
+	/**
+	 * Utility function for {@link #sendSightingsInChunks(List, String, boolean, int, int)}.
+	 * Sends the next chunk that hasn't been picked up yet, then keeps going until none are left.
+	 * @return A future that completes once there are no chunks left to send, never exceptionally.
+	 */
+	private CompletableFuture<Void> sendNextChunk(List<List<CompactPlayerSighting>> chunks, Throwable[] chunkErrors,
+		AtomicInteger nextChunk, String uploaderName, boolean manual)
+	{
+		int index = nextChunk.getAndIncrement();
+		if (index >= chunks.size())
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return sendSightings(chunks.get(index), uploaderName, manual)
+			.handle((b, ex) ->
+			{
+				if (ex != null)
+				{
+					chunkErrors[index] = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+				}
+				return null;
+			})
+			.thenCompose(v -> sendNextChunk(chunks, chunkErrors, nextChunk, uploaderName, manual));
+	}
+
+	/**
+	 * Sends a collection of {@link CompactPlayerSighting}s to the API, optionally gzip compressed.
+	 * If the API rejects a compressed upload with a 400 or 415, the upload is retried once with identity encoding.
+	 * Compression is only disabled until {@link #setUploadCompressionEnabled(boolean)} is called again
+	 * if the API blamed the encoding itself (see {@link #isEncodingRejection(Response)}).
+	 * @param sightings The collection of sightings to send.
+	 * @param uploaderName The user's player name (See {@link BotDetectorPlugin#getUploaderName()}).
+	 * @param manual Whether or not the given sightings are to be manually flagged as bots by the user.
+	 * @param gzip Whether to gzip the request body.
+	 * @return A future that will eventually return a boolean indicating success.
+	 */
+	private CompletableFuture<Boolean> sendSightings(Collection<CompactPlayerSighting> sightings, String uploaderName, boolean manual, boolean gzip)
+	{
+		RequestBody body = new SightingsRequestBody(sightings, uploaderName, manual);
+		Request.Builder builder = new Request.Builder()
 			.url(getUrl(ApiPath.DETECTION).newBuilder()
-				.build())
-			.post(RequestBody.create(JSON, bdGson.toJson(wrappedList)))
-			.build();
+				.build());
+
+		if (gzip)
+		{
+			builder.header("Content-Encoding", "gzip").post(new GzipRequestBody(body));
+		}
+		else
+		{
+			builder.post(body);
+		}
+
+		Request request = builder.build();
 
 		CompletableFuture<Boolean> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		enqueue(ApiPath.DETECTION, request, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -221,11 +611,42 @@ public class BotDetectorClient
 			{
 				try
 				{
+					if (gzip && (response.code() == 400 || response.code() == 415))
+					{
+						if (isEncodingRejection(response))
+						{
+							log.info("Compressed player sighting upload rejected with code {}, disabling compression", response.code());
+							uploadCompressionRejected = true;
+						}
+						else
+						{
+							// Most likely a bad payload rather than the encoding, try once more without touching the setting
+							log.debug("Compressed player sighting upload failed with code {}, retrying uncompressed", response.code());
+						}
+						sendSightings(sightings, uploaderName, manual, false).whenComplete((b, ex) ->
+						{
+							if (ex != null)
+							{
+								future.completeExceptionally(ex);
+							}
+							else
+							{
+								future.complete(b);
+							}
+						});
+						return;
+					}
+
 					if (!response.isSuccessful())
 					{
 						throw getIOException(response);
 					}
 
+					if (manual)
+					{
+						sightings.forEach(s -> invalidateCachedPrediction(s.getPlayerName()));
+					}
+					invalidateCachedPlayerStats(uploaderName);
 					future.complete(true);
 				}
 				catch (IOException e)
@@ -243,6 +664,123 @@ public class BotDetectorClient
 		return future;
 	}
 
+	/**
+	 * Utility function for {@link #sendSightings(Collection, String, boolean, boolean)}.
+	 * Checks if the given error response to a gzip compressed request is caused by the compression itself,
+	 * that is a 415, or a 400 whose {@code Accept-Encoding} header or body points to the encoding.
+	 * @param response The error response.
+	 * @return {@code true} if the API does not accept gzip compressed requests.
+	 */
+	private static boolean isEncodingRejection(Response response) throws IOException
+	{
+		if (response.code() == 415 || response.header("Accept-Encoding") != null)
+		{
+			return true;
+		}
+
+		String body = response.peekBody(ENCODING_ERROR_PEEK_BYTES).string().toLowerCase();
+		return body.contains("encoding") || body.contains("gzip") || body.contains("decompress");
+	}
+
+	/**
+	 * Enables or disables gzip compression for {@link #sendSightings(Collection, String, boolean)}.
+	 * Enabling compression also clears any previous rejection of compressed uploads by the API.
+	 * @param enabled Whether uploads should be compressed.
+	 */
+	public void setUploadCompressionEnabled(boolean enabled)
+	{
+		uploadCompressionEnabled = enabled;
+		if (enabled)
+		{
+			uploadCompressionRejected = false;
+		}
+	}
+
+	/**
+	 * Opens a connection to the API ahead of the first user initiated call. Missing or stale labels are refreshed
+	 * to do so, otherwise an {@code OPTIONS} request is sent, which the API answers without running the route.
+	 * Does nothing if a connection is already open, if the labels route is failing,
+	 * or if the last prewarm was less than {@link #PREWARM_COOLDOWN} ago.
+	 */
+	public void prewarmConnection()
+	{
+		Instant now = Instant.now();
+		if (connectionPool.connectionCount() > 0 || now.isBefore(lastPrewarm.plus(PREWARM_COOLDOWN))
+			|| circuitBreakers.get(ApiPath.LABELS).getState() == CircuitBreaker.State.OPEN)
+		{
+			return;
+		}
+		lastPrewarm = now;
+
+		CachedLabels cached = cachedLabels;
+		if (cached == null || Duration.between(cached.getFetchedAt(), now).getSeconds() >= LABELS_REFRESH_AHEAD_SECONDS)
+		{
+			// Failures are already logged
+			requestLabels();
+			return;
+		}
+
+		Request request = new Request.Builder()
+			.url(getUrl(ApiPath.LABELS))
+			.method("OPTIONS", null)
+			.build();
+		// Whatever the API answers, the connection is now open, so the response is not checked
+		okHttpClient.newCall(request).enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.debug("Could not prewarm the API connection", e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				response.close();
+			}
+		});
+	}
+
+	/**
+	 * Closes the idle connections to the API, such as once the player has logged out. Calls in progress are not affected.
+	 */
+	public void evictIdleConnections()
+	{
+		connectionPool.evictAll();
+	}
+
+	/**
+	 * Gets human readable diagnostic lines about the client's request coalescing and circuit breakers.
+	 * @return The diagnostic lines.
+	 */
+	public List<String> getDiagnostics()
+	{
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format("Coalesced calls: predictions %d/%d, stats %d/%d, labels %d/%d",
+			predictionFlights.getCoalesced(), predictionFlights.getCalls(),
+			playerStatsFlights.getCoalesced(), playerStatsFlights.getCalls(),
+			labelsFlights.getCoalesced(), labelsFlights.getCalls()));
+		lines.add(String.format("In-flight calls: predictions %d, stats %d, labels %d",
+			predictionFlights.getInFlight(), playerStatsFlights.getInFlight(), labelsFlights.getInFlight()));
+
+		String breakers = circuitBreakers.entrySet().stream()
+			.filter(e -> e.getValue().getState() != CircuitBreaker.State.CLOSED)
+			.map(e -> e.getKey().name() + " " + e.getValue().getState()
+				+ " (" + e.getValue().getRemainingOpenTime().getSeconds() + "s)")
+			.collect(Collectors.joining(", "));
+		lines.add("Circuit breakers: " + (breakers.isEmpty() ? "all closed" : breakers));
+
+		Dispatcher interactive = okHttpClient.dispatcher();
+		Dispatcher background = backgroundHttpClient.dispatcher();
+		lines.add(String.format("HTTP calls: interactive %d running %d queued, background %d running %d queued",
+			interactive.runningCallsCount(), interactive.queuedCallsCount(),
+			background.runningCallsCount(), background.queuedCallsCount()));
+		lines.add(String.format("Connections: %d open, %d idle",
+			connectionPool.connectionCount(), connectionPool.idleConnectionCount()));
+		lines.add("Protocols: " + okHttpClient.protocols());
+		return lines;
+	}
+
 	/**
 	 * Tokenized API route to verify the given player name and code pair for Discord linking.
 	 * @param token The auth token to use.
@@ -260,7 +798,7 @@ public class BotDetectorClient
 			.build();
 
 		CompletableFuture<Boolean> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		enqueue(ApiPath.VERIFY_DISCORD, request, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -327,70 +865,302 @@ public class BotDetectorClient
 				feedbackText
 			)))).build();
 
-		CompletableFuture<Boolean> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		enqueue(ApiPath.FEEDBACK, request, new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.warn("Error sending prediction feedback", e);
+				future.completeExceptionally(e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				try
+				{
+					boolean duplicated = false;
+
+					if (!response.isSuccessful())
+					{
+						IOException ioe = getIOException(response);
+						// If the error is because of being a duplicate record, do not throw
+						// Instead return false and let the caller handle it
+						if (!ioe.getMessage().contains("duplicate_record"))
+						{
+							throw ioe;
+						}
+						duplicated = true;
+					}
+
+					invalidateCachedPrediction(pred.getPlayerName());
+					invalidateCachedPlayerStats(uploaderName);
+					future.complete(!duplicated);
+				}
+				catch (IOException e)
+				{
+					log.warn("Error sending prediction feedback", e);
+					future.completeExceptionally(e);
+				}
+				finally
+				{
+					response.close();
+				}
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Requests a bot prediction for the given {@code playerName}.
+	 * Breakdown will be provided by default in special cases (see {@link BotDetectorClient#requestPrediction(String, boolean)}).
+	 * @param playerName The player name to predict.
+	 * @return A future that will eventually return the player's bot prediction.
+	 */
+	public CompletableFuture<Prediction> requestPrediction(String playerName)
+	{
+		return requestPrediction(playerName, true);
+	}
+
+	/**
+	 * Requests a bot prediction for the given {@code playerName}.
+	 * When requested with a breakdown, predictions are cached and returned without hitting the API for {@link #predictionCacheTtl}.
+	 * @param playerName The player name to predict.
+	 * @param receiveBreakdownOnSpecialCases Whether to receive a prediction breakdown in special cases, such as "Player Stats Too Low".
+	 * @return A future that will eventually return the player's bot prediction.
+	 */
+	public CompletableFuture<Prediction> requestPrediction(String playerName, boolean receiveBreakdownOnSpecialCases)
+	{
+		if (!receiveBreakdownOnSpecialCases)
+		{
+			return fetchPrediction(playerName, false);
+		}
+
+		CaseInsensitiveString key = normalizeAndWrapPlayerName(playerName);
+		CachedPrediction cached = predictionCache.getIfPresent(key);
+		if (cached != null && Duration.between(cached.getFetchedAt(), Instant.now()).compareTo(predictionCacheTtl) < 0)
+		{
+			return CompletableFuture.completedFuture(cached.getPrediction());
+		}
+
+		long generation = getPredictionCacheGeneration();
+		return fetchPrediction(playerName, true).thenApply(pred ->
+		{
+			cachePrediction(key, pred, Instant.now(), generation);
+			return pred;
+		});
+	}
+
+	/**
+	 * Gets the last prediction obtained for the given {@code playerName} with a breakdown, even if it is older than {@link #predictionCacheTtl}.
+	 * @param playerName The player name to get the cached prediction for.
+	 * @return The cached prediction, or {@code null} if there is none.
+	 */
+	public Prediction getCachedPrediction(String playerName)
+	{
+		CachedPrediction cached = predictionCache.getIfPresent(normalizeAndWrapPlayerName(playerName));
+		return cached != null ? cached.getPrediction() : null;
+	}
+
+	/**
+	 * Removes the cached prediction for the given {@code playerName}, so that the next request hits the API.
+	 * @param playerName The player name to remove the cached prediction for.
+	 */
+	public void invalidateCachedPrediction(String playerName)
+	{
+		synchronized (predictionCache)
+		{
+			predictionCacheGeneration++;
+			predictionCache.invalidate(normalizeAndWrapPlayerName(playerName));
+		}
+	}
+
+	private long getPredictionCacheGeneration()
+	{
+		synchronized (predictionCache)
+		{
+			return predictionCacheGeneration;
+		}
+	}
+
+	/**
+	 * Caches the given prediction, unless a prediction was invalidated since the fetch started.
+	 * @param key The normalized player name.
+	 * @param pred The fetched prediction, {@code null} if the player was not found.
+	 * @param fetchedAt The time the prediction was fetched.
+	 * @param generation The value of {@link #predictionCacheGeneration} when the fetch started.
+	 */
+	private void cachePrediction(CaseInsensitiveString key, Prediction pred, Instant fetchedAt, long generation)
+	{
+		synchronized (predictionCache)
+		{
+			if (pred == null)
+			{
+				predictionCache.invalidate(key);
+			}
+			else if (generation == predictionCacheGeneration)
+			{
+				predictionCache.put(key, new CachedPrediction(pred, fetchedAt));
+			}
+		}
+	}
+
+	/**
+	 * Requests bot predictions for all the given {@code playerNames}, with breakdowns.
+	 * The API has no batch route, so one request is sent per name, with at most {@link #PREDICTIONS_MAX_CONCURRENT_REQUESTS}
+	 * in flight at once over the shared connection pool. Fresh cached predictions are reused, and the labels are
+	 * requested only once and merged into every prediction afterwards.
+	 * @param playerNames The player names to predict.
+	 * @return A future that will eventually return the obtained predictions, along with the players that were not found
+	 * and those whose request failed. Never completes exceptionally, a failed request only fails its own player.
+	 */
+	public CompletableFuture<PredictionBatchResult> requestPredictions(Collection<String> playerNames)
+	{
+		Map<CaseInsensitiveString, Prediction> results = new ConcurrentHashMap<>();
+		Set<CaseInsensitiveString> notFound = ConcurrentHashMap.newKeySet();
+		Map<CaseInsensitiveString, Throwable> failed = new ConcurrentHashMap<>();
+		List<String> toFetch = new ArrayList<>();
+		Set<CaseInsensitiveString> seen = new HashSet<>();
+		Instant now = Instant.now();
+		long generation = getPredictionCacheGeneration();
+		for (String name : playerNames)
+		{
+			CaseInsensitiveString key = normalizeAndWrapPlayerName(name);
+			if (!seen.add(key))
+			{
+				continue;
+			}
+
+			CachedPrediction cached = predictionCache.getIfPresent(key);
+			if (cached != null && Duration.between(cached.getFetchedAt(), now).compareTo(predictionCacheTtl) < 0)
+			{
+				results.put(key, cached.getPrediction());
+			}
+			else
+			{
+				toFetch.add(name);
+			}
+		}
+
+		if (toFetch.isEmpty())
+		{
+			return CompletableFuture.completedFuture(new PredictionBatchResult(results, notFound, failed));
+		}
+
+		Map<CaseInsensitiveString, Prediction> rawPredictions = new ConcurrentHashMap<>();
+		AtomicInteger nextName = new AtomicInteger();
+		int workers = Math.min(PREDICTIONS_MAX_CONCURRENT_REQUESTS, toFetch.size());
+		CompletableFuture<?>[] workerFutures = new CompletableFuture<?>[workers];
+		for (int i = 0; i < workers; i++)
+		{
+			workerFutures[i] = fetchNextRawPrediction(toFetch, nextName, rawPredictions, notFound, failed);
+		}
+
+		// Missing labels only mean the breakdowns are not padded, do not fail the whole batch over them
+		CompletableFuture<LabelIndex> labelsFuture = requestLabels().exceptionally(ex -> LabelIndex.EMPTY);
+		return CompletableFuture.allOf(workerFutures).thenCombineAsync(labelsFuture, (v, labelIndex) ->
 		{
-			@Override
-			public void onFailure(Call call, IOException e)
+			Instant fetchedAt = Instant.now();
+			for (Map.Entry<CaseInsensitiveString, Prediction> entry : rawPredictions.entrySet())
 			{
-				log.warn("Error sending prediction feedback", e);
-				future.completeExceptionally(e);
+				Prediction pred = normalizePrediction(entry.getValue(), labelIndex);
+				cachePrediction(entry.getKey(), pred, fetchedAt, generation);
+				results.put(entry.getKey(), pred);
 			}
+			notFound.forEach(key -> cachePrediction(key, null, fetchedAt, generation));
+			return new PredictionBatchResult(results, notFound, failed);
+		}, callbackExecutor);
+	}
 
-			@Override
-			public void onResponse(Call call, Response response)
+	/**
+	 * Utility function for {@link #requestPredictions(Collection)}.
+	 * Requests the next raw prediction that hasn't been picked up yet, then keeps going until none are left.
+	 * Each outcome is recorded in one of {@code rawPredictions}, {@code notFound} or {@code failed}.
+	 * @return A future that completes once there are no names left to request, never exceptionally.
+	 */
+	private CompletableFuture<Void> fetchNextRawPrediction(List<String> playerNames, AtomicInteger nextName,
+		Map<CaseInsensitiveString, Prediction> rawPredictions, Set<CaseInsensitiveString> notFound,
+		Map<CaseInsensitiveString, Throwable> failed)
+	{
+		int index = nextName.getAndIncrement();
+		if (index >= playerNames.size())
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		String name = playerNames.get(index);
+		CaseInsensitiveString key = normalizeAndWrapPlayerName(name);
+		return requestRawPrediction(name, true)
+			.handle((pred, ex) ->
 			{
-				try
+				if (ex != null)
 				{
-					boolean duplicated = false;
-
-					if (!response.isSuccessful())
-					{
-						IOException ioe = getIOException(response);
-						// If the error is because of being a duplicate record, do not throw
-						// Instead return false and let the caller handle it
-						if (!ioe.getMessage().contains("duplicate_record"))
-						{
-							throw ioe;
-						}
-						duplicated = true;
-					}
-
-					future.complete(!duplicated);
+					failed.put(key, ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
 				}
-				catch (IOException e)
+				else if (pred != null)
 				{
-					log.warn("Error sending prediction feedback", e);
-					future.completeExceptionally(e);
+					rawPredictions.put(key, pred);
 				}
-				finally
+				else
 				{
-					response.close();
+					notFound.add(key);
 				}
-			}
-		});
-
-		return future;
+				return null;
+			})
+			.thenCompose(v -> fetchNextRawPrediction(playerNames, nextName, rawPredictions, notFound, failed));
 	}
 
 	/**
-	 * Requests a bot prediction for the given {@code playerName}.
-	 * Breakdown will be provided by default in special cases (see {@link BotDetectorClient#requestPrediction(String, boolean)}).
+	 * Requests a bot prediction for the given {@code playerName} from the API, bypassing the prediction cache.
 	 * @param playerName The player name to predict.
+	 * @param receiveBreakdownOnSpecialCases Whether to receive a prediction breakdown in special cases, such as "Player Stats Too Low".
 	 * @return A future that will eventually return the player's bot prediction.
 	 */
-	public CompletableFuture<Prediction> requestPrediction(String playerName)
+	private CompletableFuture<Prediction> fetchPrediction(String playerName, boolean receiveBreakdownOnSpecialCases)
 	{
-		return requestPrediction(playerName, true);
+		CompletableFuture<Prediction> predFuture = requestRawPrediction(playerName, receiveBreakdownOnSpecialCases);
+		CompletableFuture<LabelIndex> labelsFuture = requestLabels();
+
+		CompletableFuture<Prediction> finalFuture = new CompletableFuture<>();
+
+		// Doing this so we log only the first future failing, not all 2 within the callback.
+		CompletableFuture.allOf(predFuture, labelsFuture).whenCompleteAsync((v, e) ->
+		{
+			if (e != null)
+			{
+				// allOf will send a CompletionException when one of the futures fail, just get the cause.
+				log.warn("Error obtaining player prediction data", e.getCause());
+				finalFuture.completeExceptionally(e.getCause());
+				return;
+			}
+
+			Prediction pred = predFuture.join();
+			finalFuture.complete(pred != null ? normalizePrediction(pred, labelsFuture.join()) : null);
+		}, callbackExecutor);
+
+		return finalFuture;
 	}
 
 	/**
-	 * Requests a bot prediction for the given {@code playerName}.
+	 * Requests a bot prediction for the given {@code playerName} from the API, as returned by the API.
+	 * See {@link #normalizePrediction(Prediction, LabelIndex)} to normalize its labels.
 	 * @param playerName The player name to predict.
 	 * @param receiveBreakdownOnSpecialCases Whether to receive a prediction breakdown in special cases, such as "Player Stats Too Low".
-	 * @return A future that will eventually return the player's bot prediction.
+	 * @return A future that will eventually return the player's raw bot prediction, or {@code null} if the player was not found.
 	 */
-	public CompletableFuture<Prediction> requestPrediction(String playerName, boolean receiveBreakdownOnSpecialCases)
+	private CompletableFuture<Prediction> requestRawPrediction(String playerName, boolean receiveBreakdownOnSpecialCases)
+	{
+		return predictionFlights.execute(
+			ImmutableList.of(normalizeAndWrapPlayerName(playerName), receiveBreakdownOnSpecialCases),
+			() -> fetchRawPrediction(playerName, receiveBreakdownOnSpecialCases));
+	}
+
+	/**
+	 * Utility function for {@link #requestRawPrediction(String, boolean)}, always hitting the API.
+	 */
+	private CompletableFuture<Prediction> fetchRawPrediction(String playerName, boolean receiveBreakdownOnSpecialCases)
 	{
 		Request request_pred = new Request.Builder()
 			.url(getUrl(ApiPath.PREDICTION).newBuilder()
@@ -400,7 +1170,7 @@ public class BotDetectorClient
 			.build();
 
 		CompletableFuture<Prediction> predFuture = new CompletableFuture<>();
-		okHttpClient.newCall(request_pred).enqueue(new Callback()
+		enqueue(ApiPath.PREDICTION, request_pred, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -414,9 +1184,7 @@ public class BotDetectorClient
 			{
 				try
 				{
-					Collection<Prediction> preds = processResponse(gson, response, new TypeToken<Collection<Prediction>>()
-					{
-					}.getType());
+					Collection<Prediction> preds = processResponse(gson, response, PREDICTIONS_TYPE);
 					if (preds != null)
 					{
 						predFuture.complete(preds.stream().findFirst().orElse(null));
@@ -436,119 +1204,243 @@ public class BotDetectorClient
 			}
 		});
 
-		CompletableFuture<Collection<LabelAPIItem>> labelsFuture = new CompletableFuture<>();
+		return predFuture;
+	}
 
-		Instant now = Instant.now();
-		if (Duration.between(lastTimeCachedLabels, now).getSeconds() <= LABELS_CACHE_SECONDS)
+	/**
+	 * Gets the index of prediction labels, from the cache if there is one.
+	 * Labels older than {@link #LABELS_REFRESH_AHEAD_SECONDS} are refreshed in the background while the cached index is returned,
+	 * so only the very first request (with no labels on disk either) waits on the API.
+	 * @return A future that will eventually return the prediction labels index.
+	 */
+	CompletableFuture<LabelIndex> requestLabels()
+	{
+		CachedLabels cached = cachedLabels;
+		if (cached == null)
 		{
-			labelsFuture.complete(cachedLabels);
+			return labelsFlights.execute(ApiPath.LABELS, () -> fetchLabels(Instant.now()));
 		}
-		else
+
+		if (Duration.between(cached.getFetchedAt(), Instant.now()).getSeconds() >= LABELS_REFRESH_AHEAD_SECONDS)
 		{
-			Request request_labels = new Request.Builder()
-				.url(getUrl(ApiPath.LABELS).newBuilder()
-					.build())
-				.build();
+			// Single-flight ensures only one refresh is in flight, failures are already logged
+			labelsFlights.execute(ApiPath.LABELS, () -> fetchLabels(Instant.now()));
+		}
+		return CompletableFuture.completedFuture(cached.getLabelIndex());
+	}
 
-			okHttpClient.newCall(request_labels).enqueue(new Callback()
-			{
-				@Override
-				public void onFailure(Call call, IOException e)
-				{
-					log.warn("Error obtaining labels data", e);
-					labelsFuture.completeExceptionally(e);
-				}
+	/**
+	 * Gets the index of the last known prediction labels, without hitting the API.
+	 * @return The label index, {@link LabelIndex#EMPTY} if no labels are known yet.
+	 */
+	public LabelIndex getLabelIndex()
+	{
+		CachedLabels cached = cachedLabels;
+		return cached != null ? cached.getLabelIndex() : LabelIndex.EMPTY;
+	}
 
-				@Override
-				public void onResponse(Call call, Response response)
-				{
-					try
-					{
-						Collection<LabelAPIItem> labels = processResponse(gson, response, new TypeToken<Collection<LabelAPIItem>>()
-						{
-						}.getType());
-						if (labels != null)
-						{
-							cachedLabels = labels;
-							lastTimeCachedLabels = now;
-						}
-						labelsFuture.complete(labels);
-					}
-					catch (IOException e)
-					{
-						log.warn("Error obtaining player labels data", e);
-						labelsFuture.completeExceptionally(e);
-					}
-					finally
-					{
-						response.close();
-					}
-				}
-			});
+	/**
+	 * Loads the labels persisted by a previous session from {@link #labelsFile}, if none were fetched yet.
+	 * Should not be called from the client or Swing threads, as it reads from disk.
+	 */
+	public void loadPersistedLabels()
+	{
+		if (cachedLabels != null || !labelsFile.exists())
+		{
+			return;
 		}
 
-		CompletableFuture<Prediction> finalFuture = new CompletableFuture<>();
-
-		// Doing this so we log only the first future failing, not all 2 within the callback.
-		CompletableFuture.allOf(predFuture, labelsFuture).whenComplete((v, e) ->
+		try (Reader reader = new InputStreamReader(new FileInputStream(labelsFile), StandardCharsets.UTF_8))
 		{
-			if (e != null)
+			PersistedLabels persisted = gson.fromJson(reader, PersistedLabels.class);
+			if (persisted != null && persisted.getLabels() != null && cachedLabels == null)
 			{
-				// allOf will send a CompletionException when one of the futures fail, just get the cause.
-				log.warn("Error obtaining player prediction data", e.getCause());
-				finalFuture.completeExceptionally(e.getCause());
-				return;
+				cachedLabels = CachedLabels.of(persisted.getLabels(), Instant.ofEpochSecond(persisted.getFetchedAt()));
 			}
+		}
+		catch (IOException | JsonParseException ex)
+		{
+			log.warn("Could not load persisted prediction labels", ex);
+		}
+	}
 
-			Prediction pred = predFuture.join();
-			if (pred == null)
+	/**
+	 * Writes the given labels to {@link #labelsFile}, going through a temporary file so a crash never leaves a partial file.
+	 * Does nothing if labels fetched later were already written.
+	 * Should not be called from the OkHttp or client threads, as it writes to disk.
+	 * @param labels The labels to persist.
+	 */
+	private synchronized void persistLabels(CachedLabels labels)
+	{
+		if (!labels.getFetchedAt().isAfter(persistedLabelsFetchedAt))
+		{
+			return;
+		}
+
+		File tempFile = new File(labelsFile.getParentFile(), labelsFile.getName() + ".tmp");
+		try
+		{
+			Files.createDirectories(labelsFile.getParentFile().toPath());
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))
 			{
-				finalFuture.complete(null);
-				return;
+				gson.toJson(new PersistedLabels(labels.getFetchedAt().getEpochSecond(), labels.getLabels()), writer);
 			}
+			Files.move(tempFile.toPath(), labelsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			persistedLabelsFetchedAt = labels.getFetchedAt();
+		}
+		catch (IOException | JsonIOException ex)
+		{
+			log.warn("Could not persist prediction labels", ex);
+		}
+	}
+
+	/**
+	 * Utility function for {@link #requestLabels()}, always hitting the API.
+	 * @param now The time of the request, to be recorded as the time the labels were cached.
+	 */
+	private CompletableFuture<LabelIndex> fetchLabels(Instant now)
+	{
+		CompletableFuture<LabelIndex> labelsFuture = new CompletableFuture<>();
 
-			Collection<LabelAPIItem> labels = labelsFuture.join();
+		Request request_labels = new Request.Builder()
+			.url(getUrl(ApiPath.LABELS).newBuilder()
+				.build())
+			.build();
 
-			// Re-add predictions as lowercase
-			Map<String, Double> newBreakdown = new HashMap<>();
-			if (pred.getPredictionBreakdown() != null)
+		enqueue(ApiPath.LABELS, request_labels, new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
 			{
-				for (Map.Entry<String, Double> entry : pred.getPredictionBreakdown().entrySet())
-				{
-					newBreakdown.put(entry.getKey().toLowerCase(), entry.getValue());
-				}
+				log.warn("Error obtaining labels data", e);
+				labelsFuture.completeExceptionally(e);
 			}
 
-			// Add labels that may not be in the breakdown
-			if (labels != null)
+			@Override
+			public void onResponse(Call call, Response response)
 			{
-				for (LabelAPIItem label : labels)
+				try
+				{
+					Collection<LabelAPIItem> labels = processResponse(gson, response, LABELS_TYPE);
+					if (labels == null)
+					{
+						labelsFuture.complete(LabelIndex.EMPTY);
+						return;
+					}
+
+					CachedLabels previous = cachedLabels;
+					CachedLabels fetched = CachedLabels.of(labels, now);
+					// The labels rarely change, so most refreshes have nothing new to write
+					if (previous == null || !previous.getLabels().equals(fetched.getLabels()))
+					{
+						callbackExecutor.execute(() -> persistLabels(fetched));
+					}
+					cachedLabels = fetched;
+					labelsFuture.complete(fetched.getLabelIndex());
+				}
+				catch (IOException e)
+				{
+					log.warn("Error obtaining player labels data", e);
+					labelsFuture.completeExceptionally(e);
+				}
+				finally
 				{
-					newBreakdown.putIfAbsent(label.getLabel().toLowerCase(), 0.0);
+					response.close();
 				}
 			}
-
-			// Build a new copy of the prediction object with normalized labels
-			finalFuture.complete(
-				Prediction.builder()
-					.playerName(pred.getPlayerName())
-					.playerId(pred.getPlayerId())
-					.confidence(pred.getConfidence())
-					.predictionBreakdown(newBreakdown)
-					.predictionLabel(pred.getPredictionLabel().toLowerCase())
-					.build()
-			);
 		});
 
-		return finalFuture;
+		return labelsFuture;
 	}
 
 	/**
-	 * Requests the uploading contributions for the given {@code playerName}.
+	 * Builds a copy of the given raw prediction with canonical labels, adding the known labels that are not in its breakdown.
+	 * @param pred The raw prediction from the API.
+	 * @param labelIndex The index of the known labels.
+	 * @return The normalized prediction.
+	 */
+	private static Prediction normalizePrediction(Prediction pred, LabelIndex labelIndex)
+	{
+		Map<String, Double> breakdown = pred.getPredictionBreakdown();
+		Map<String, Double> newBreakdown = Maps.newHashMapWithExpectedSize(
+			(breakdown != null ? breakdown.size() : 0) + labelIndex.getLabels().size());
+
+		// Re-add predictions with their canonical label
+		if (breakdown != null)
+		{
+			for (Map.Entry<String, Double> entry : breakdown.entrySet())
+			{
+				newBreakdown.put(labelIndex.canonicalize(entry.getKey()), entry.getValue());
+			}
+		}
+
+		// Add labels that may not be in the breakdown
+		for (String label : labelIndex.getLabels())
+		{
+			newBreakdown.putIfAbsent(label, 0.0);
+		}
+
+		// Build a new copy of the prediction object with normalized labels
+		return Prediction.builder()
+			.playerName(pred.getPlayerName())
+			.playerId(pred.getPlayerId())
+			.confidence(pred.getConfidence())
+			.predictionBreakdown(newBreakdown)
+			.predictionLabel(labelIndex.canonicalize(pred.getPredictionLabel()))
+			.build();
+	}
+
+	/**
+	 * Requests the uploading contributions for the given {@code playerName}, from the cache if recent enough.
 	 * @param playerName The name to request the uploading contributions.
 	 * @return A future that will eventually return the player's statistics.
 	 */
 	public CompletableFuture<Map<PlayerStatsType, PlayerStats>> requestPlayerStats(String playerName)
+	{
+		return requestPlayerStats(playerName, false);
+	}
+
+	/**
+	 * Requests the uploading contributions for the given {@code playerName}.
+	 * Stats are cached for {@link #PLAYER_STATS_CACHE_TTL}, or {@link #PLAYER_STATS_NEGATIVE_CACHE_TTL} for players with no stats.
+	 * Concurrent requests for the same player share the same API calls.
+	 * @param playerName The name to request the uploading contributions.
+	 * @param bypassCache If {@code true}, always hits the API, such as for a forced refresh.
+	 * @return A future that will eventually return the player's statistics.
+	 */
+	public CompletableFuture<Map<PlayerStatsType, PlayerStats>> requestPlayerStats(String playerName, boolean bypassCache)
+	{
+		CaseInsensitiveString key = normalizeAndWrapPlayerName(playerName);
+		if (!bypassCache)
+		{
+			CachedPlayerStats cached = playerStatsCache.getIfPresent(key);
+			if (cached != null && Duration.between(cached.getFetchedAt(), Instant.now()).compareTo(
+				cached.hasStats() ? PLAYER_STATS_CACHE_TTL : PLAYER_STATS_NEGATIVE_CACHE_TTL) < 0)
+			{
+				return CompletableFuture.completedFuture(cached.getStats());
+			}
+		}
+
+		return playerStatsFlights.execute(key, () -> fetchPlayerStats(playerName).thenApply(stats ->
+		{
+			playerStatsCache.put(key, new CachedPlayerStats(stats, Instant.now()));
+			return stats;
+		}));
+	}
+
+	/**
+	 * Removes the cached stats for the given {@code playerName}, so that the next request hits the API.
+	 * @param playerName The player name to remove the cached stats for.
+	 */
+	public void invalidateCachedPlayerStats(String playerName)
+	{
+		playerStatsCache.invalidate(normalizeAndWrapPlayerName(playerName));
+	}
+
+	/**
+	 * Utility function for {@link #requestPlayerStats(String)}, always hitting the API.
+	 */
+	private CompletableFuture<Map<PlayerStatsType, PlayerStats>> fetchPlayerStats(String playerName)
 	{
 		Request requestR = new Request.Builder()
 			.url(getUrl(ApiPath.PLAYER_STATS_REPORTS).newBuilder()
@@ -565,13 +1457,13 @@ public class BotDetectorClient
 		CompletableFuture<Collection<PlayerStatsAPIItem>> reportsFuture = new CompletableFuture<>();
 		CompletableFuture<Collection<PlayerStatsAPIItem>> feedbackFuture = new CompletableFuture<>();
 
-		okHttpClient.newCall(requestR).enqueue(new PlayerStatsCallback(reportsFuture, gson));
-		okHttpClient.newCall(requestF).enqueue(new PlayerStatsCallback(feedbackFuture, gson));
+		enqueue(ApiPath.PLAYER_STATS_REPORTS, requestR, new PlayerStatsCallback(reportsFuture, gson));
+		enqueue(ApiPath.PLAYER_STATS_FEEDBACK, requestF, new PlayerStatsCallback(feedbackFuture, gson));
 
 		CompletableFuture<Map<PlayerStatsType, PlayerStats>> finalFuture = new CompletableFuture<>();
 
 		// Doing this so we log only the first future failing, not all 2 within the callback.
-		CompletableFuture.allOf(reportsFuture, feedbackFuture).whenComplete((v, e) ->
+		CompletableFuture.allOf(reportsFuture, feedbackFuture).whenCompleteAsync((v, e) ->
 		{
 			if (e != null)
 			{
@@ -583,7 +1475,7 @@ public class BotDetectorClient
 			{
 				finalFuture.complete(processPlayerStats(reportsFuture.join(), feedbackFuture.join()));
 			}
-		});
+		}, callbackExecutor);
 
 		return finalFuture;
 	}
@@ -613,10 +1505,7 @@ public class BotDetectorClient
 		{
 			try
 			{
-				future.complete(processResponse(gson, response,
-					new TypeToken<Collection<PlayerStatsAPIItem>>()
-					{
-					}.getType()));
+				future.complete(processResponse(gson, response, PLAYER_STATS_TYPE));
 			}
 			catch (IOException e)
 			{
@@ -631,6 +1520,7 @@ public class BotDetectorClient
 
 	/**
 	 * Processes the body of the given response and parses out the contained JSON object.
+	 * The body is parsed as it is read from the socket, without being buffered into a {@link String} first.
 	 * @param gson The {@link Gson} instance to use for parsing the JSON object in the {@code response}.
 	 * @param response The response containing the object to parse in {@link Response#body()}.
 	 * @param type The type of the JSON object to parse.
@@ -650,11 +1540,12 @@ public class BotDetectorClient
 			throw getIOException(response);
 		}
 
-		try
+		// Gson caches the type adapter for each type, so only the first response of a type builds one
+		try (JsonReader reader = gson.newJsonReader(response.body().charStream()))
 		{
-			return gson.fromJson(response.body().string(), type);
+			return gson.fromJson(reader, type);
 		}
-		catch (IOException | IllegalStateException | JsonSyntaxException ex)
+		catch (IOException | IllegalStateException | JsonParseException ex)
 		{
 			throw new IOException("Error parsing API response body", ex);
 		}
@@ -686,14 +1577,15 @@ public class BotDetectorClient
 					{
 						error = map.getOrDefault("detail", "Unknown " + code + " error from API");
 					}
-					return new IOException(error);
+					return code == 422 ? new ValidationException(error) : new IOException(error);
 				}
 				catch (JsonSyntaxException ex)
 				{
 					// If can't parse, just log the response body
 					// TODO: Parse actual error info received from FastAPI (details -> loc, msg, ctx, etc.) especially for 422 errors
 					log.warn("Received HTTP error code " + code + " from API with the following response body:\n" + body);
-					return new IOException("Error " + code + ", see log for more info");
+					String error = "Error " + code + ", see log for more info";
+					return code == 422 ? new ValidationException(error) : new IOException(error);
 				}
 			}
 			catch (IOException ex)
@@ -707,48 +1599,65 @@ public class BotDetectorClient
 
 	/**
 	 * Collects the given {@link PlayerStatsAPIItem} into a combined map that the plugin expects.
+	 * Each collection is iterated only once, with reports dispatched to the passive or manual counts as they are read.
 	 * @param reports The reports usage stats from the API.
 	 * @param feedback The feedback stats from the API.
 	 * @return The combined processed map expected by the plugin.
 	 */
-	private Map<PlayerStatsType, PlayerStats> processPlayerStats(Collection<PlayerStatsAPIItem> reports, Collection<PlayerStatsAPIItem> feedback)
+	static Map<PlayerStatsType, PlayerStats> processPlayerStats(Collection<PlayerStatsAPIItem> reports, Collection<PlayerStatsAPIItem> feedback)
 	{
 		if (reports == null || feedback == null)
 		{
 			return null;
 		}
 
-		PlayerStats passiveStats = countStats(reports.stream().filter(
-			r -> r.getManual() != null && !r.getManual()).collect(Collectors.toList()), false);
-		PlayerStats manualStats = countStats(reports.stream().filter(
-			r -> r.getManual() != null && r.getManual()).collect(Collectors.toList()), true);
-		PlayerStats feedbackStats = countStats(feedback, false);
+		StatsAccumulator passive = new StatsAccumulator(false);
+		StatsAccumulator manual = new StatsAccumulator(true);
+		for (PlayerStatsAPIItem item : reports)
+		{
+			Boolean isManual = item.getManual();
+			if (isManual != null)
+			{
+				(isManual ? manual : passive).add(item);
+			}
+		}
+
+		long feedbackSent = 0;
+		for (PlayerStatsAPIItem item : feedback)
+		{
+			feedbackSent += item.getCount();
+		}
 
 		PlayerStats totalStats = PlayerStats.builder()
-			.namesUploaded(passiveStats.getNamesUploaded() + manualStats.getNamesUploaded())
-			.confirmedBans(passiveStats.getConfirmedBans() + manualStats.getConfirmedBans())
-			.possibleBans(passiveStats.getPossibleBans() + manualStats.getPossibleBans())
-			.feedbackSent(feedbackStats.getNamesUploaded()) // Might change the total/passive/manual thing in the future.
+			.namesUploaded(passive.total + manual.total)
+			.confirmedBans(passive.confirmedBans + manual.confirmedBans)
+			.possibleBans(passive.possibleBans + manual.possibleBans)
+			.feedbackSent(feedbackSent) // Might change the total/passive/manual thing in the future.
 			.build();
 
 		return ImmutableMap.of(
 			PlayerStatsType.TOTAL, totalStats,
-			PlayerStatsType.PASSIVE, passiveStats,
-			PlayerStatsType.MANUAL, manualStats
+			PlayerStatsType.PASSIVE, passive.build(),
+			PlayerStatsType.MANUAL, manual.build()
 		);
 	}
 
 	/**
-	 * Utility function for {@link BotDetectorClient#processPlayerStats(Collection, Collection)}.
-	 * Compile each element from the API into a {@link PlayerStats} object.
-	 * @param fromAPI The returned collections of player stats from the API to accumulate.
-	 * @param countIncorrect Intended for manual flagging stats. If true, count confirmed players into {@link PlayerStats#getIncorrectFlags()}.
-	 * @return The stats object with accumulated counts from the API.
+	 * Utility class for {@link BotDetectorClient#processPlayerStats(Collection, Collection)}.
+	 * Accumulates the counts of {@link PlayerStatsAPIItem}s into a {@link PlayerStats} object.
 	 */
-	private PlayerStats countStats(Collection<PlayerStatsAPIItem> fromAPI, boolean countIncorrect)
+	private static class StatsAccumulator
 	{
-		long total = 0, confirmedBans = 0, possibleBans = 0, incorrectFlags = 0;
-		for (PlayerStatsAPIItem item : fromAPI)
+		/** Intended for manual flagging stats. If true, count confirmed players into {@link PlayerStats#getIncorrectFlags()}. **/
+		private final boolean countIncorrect;
+		private long total, confirmedBans, possibleBans, incorrectFlags;
+
+		StatsAccumulator(boolean countIncorrect)
+		{
+			this.countIncorrect = countIncorrect;
+		}
+
+		void add(PlayerStatsAPIItem item)
 		{
 			if (item.isBanned())
 			{
@@ -770,23 +1679,64 @@ public class BotDetectorClient
 			total += item.getCount();
 		}
 
-		return PlayerStats.builder()
-			.namesUploaded(total)
-			.confirmedBans(confirmedBans)
-			.possibleBans(possibleBans)
-			.incorrectFlags(incorrectFlags)
-			.build();
+		PlayerStats build()
+		{
+			return PlayerStats.builder()
+				.namesUploaded(total)
+				.confirmedBans(confirmedBans)
+				.possibleBans(possibleBans)
+				.incorrectFlags(incorrectFlags)
+				.build();
+		}
+	}
+
+	@Value
+	private static class CachedPrediction
+	{
+		Prediction prediction;
+		Instant fetchedAt;
+	}
+
+	@Value
+	private static class CachedPlayerStats
+	{
+		Map<PlayerStatsType, PlayerStats> stats;
+		Instant fetchedAt;
+
+		boolean hasStats()
+		{
+			if (stats == null)
+			{
+				return false;
+			}
+			PlayerStats total = stats.get(PlayerStatsType.TOTAL);
+			return total != null && (total.getNamesUploaded() > 0 || total.getFeedbackSent() > 0);
+		}
+	}
+
+	@Value
+	private static class CachedLabels
+	{
+		Collection<LabelAPIItem> labels;
+		LabelIndex labelIndex;
+		Instant fetchedAt;
+
+		static CachedLabels of(Collection<LabelAPIItem> labels, Instant fetchedAt)
+		{
+			return new CachedLabels(labels,
+				new LabelIndex(labels.stream().map(LabelAPIItem::getLabel).collect(Collectors.toList())), fetchedAt);
+		}
 	}
 
 	/**
-	 * For use with {@link PlayerSightingWrapperSerializer}.
+	 * Format of {@link #labelsFile}.
 	 */
 	@Value
-	private static class PlayerSightingWrapper
+	private static class PersistedLabels
 	{
-		String uploaderName;
-		boolean manualDetect;
-		PlayerSighting sightingData;
+		@SerializedName("fetched_at")
+		long fetchedAt;
+		Collection<LabelAPIItem> labels;
 	}
 
 	@Value
@@ -819,7 +1769,7 @@ public class BotDetectorClient
 	}
 
 	@Value
-	private static class PlayerStatsAPIItem
+	static class PlayerStatsAPIItem
 	{
 		@SerializedName("possible_ban")
 		boolean possibleBanned;
@@ -847,69 +1797,60 @@ public class BotDetectorClient
 	}
 
 	/**
-	 * Wrapper around the {@link PlayerSighting}'s json serializer.
-	 * Adds the reporter name as an element on the same level as the {@link PlayerSighting}'s fields.
+	 * Request body that writes the given sightings as a JSON array directly into the request's sink,
+	 * so that the whole payload is never built in memory at once, whatever the number of sightings.
 	 */
-	private static class PlayerSightingWrapperSerializer implements JsonSerializer<PlayerSightingWrapper>
+	@AllArgsConstructor
+	private static class SightingsRequestBody extends RequestBody
 	{
+		private final Collection<CompactPlayerSighting> sightings;
+		private final String uploaderName;
+		private final boolean manual;
+
 		@Override
-		public JsonElement serialize(PlayerSightingWrapper src, Type typeOfSrc, JsonSerializationContext context)
+		public MediaType contentType()
 		{
-			JsonElement json = context.serialize(src.getSightingData());
-			JsonObject jo = json.getAsJsonObject();
-			jo.addProperty("reporter", src.getUploaderName());
-			jo.add("manual_detect", context.serialize(src.isManualDetect()));
-			return json;
+			return JSON;
 		}
-	}
 
-	/**
-	 * Serializes a {@link KitType} for the API.
-	 */
-	private static class KitTypeSerializer implements JsonSerializer<KitType>
-	{
 		@Override
-		public JsonElement serialize(KitType kitType, Type typeOfSrc, JsonSerializationContext context)
+		public void writeTo(BufferedSink sink) throws IOException
 		{
-			return context.serialize("equip_" + kitType.name().toLowerCase() + "_id");
+			// Do not close the writer, the sink belongs to OkHttp
+			JsonWriter writer = new JsonWriter(new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8));
+			SightingJsonWriter.writeSightings(writer, sightings, uploaderName, manual);
+			writer.flush();
 		}
 	}
 
 	/**
-	 * Serializes/Deserializes a {@link Boolean} as the integers {@code 0} or {@code 1}.
+	 * Request body that gzip compresses the given request body as it is written.
+	 * The request must have its {@code Content-Encoding} header set to {@code gzip}.
 	 */
-	private static class BooleanToZeroOneConverter implements JsonSerializer<Boolean>, JsonDeserializer<Boolean>
+	@AllArgsConstructor
+	private static class GzipRequestBody extends RequestBody
 	{
-		@Override
-		public JsonElement serialize(Boolean src, Type typeOfSrc, JsonSerializationContext context)
-		{
-			return context.serialize(src ? 1 : 0);
-		}
+		private final RequestBody body;
 
 		@Override
-		public Boolean deserialize(JsonElement json, Type type, JsonDeserializationContext context)
-			throws JsonParseException
+		public MediaType contentType()
 		{
-			return json.getAsInt() != 0;
+			return body.contentType();
 		}
-	}
 
-	/**
-	 * Serializes/Unserializes {@link Instant} using {@link Instant#getEpochSecond()}/{@link Instant#ofEpochSecond(long)}
-	 */
-	private static class InstantSecondsConverter implements JsonSerializer<Instant>, JsonDeserializer<Instant>
-	{
 		@Override
-		public JsonElement serialize(Instant src, Type srcType, JsonSerializationContext context)
+		public long contentLength()
 		{
-			return new JsonPrimitive(src.getEpochSecond());
+			// Unknown until compressed
+			return -1;
 		}
 
 		@Override
-		public Instant deserialize(JsonElement json, Type type, JsonDeserializationContext context)
-			throws JsonParseException
+		public void writeTo(BufferedSink sink) throws IOException
 		{
-			return Instant.ofEpochSecond(json.getAsLong());
+			BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+			body.writeTo(gzipSink);
+			gzipSink.close();
 		}
 	}
 }
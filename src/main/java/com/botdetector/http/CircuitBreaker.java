@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the recent failures of a single API route and stops requests from being sent while the route is failing.
+ * After {@link #FAILURE_THRESHOLD} consecutive failures the breaker opens for an exponentially growing, jittered
+ * amount of time (or longer if the API asked for it through {@code Retry-After}, up to {@link #MAX_OPEN_DURATION}).
+ * Below the threshold, a requested delay is left to the retry of the failed request. Once the open time has passed,
+ * a single probe request is let through: its success closes the breaker, its failure opens it again.
+ */
+@Slf4j
+class CircuitBreaker
+{
+	enum State
+	{
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	private static final int FAILURE_THRESHOLD = 3;
+	private static final Duration BASE_OPEN_DURATION = Duration.ofSeconds(5);
+	private static final Duration MAX_OPEN_DURATION = Duration.ofMinutes(5);
+
+	private final String name;
+	private final Clock clock;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private int consecutiveOpenings;
+	private Instant openUntil = Instant.MIN;
+	private boolean probeInFlight;
+
+	CircuitBreaker(String name)
+	{
+		this(name, Clock.systemUTC());
+	}
+
+	CircuitBreaker(String name, Clock clock)
+	{
+		this.name = name;
+		this.clock = clock;
+	}
+
+	/**
+	 * Checks if a request may be sent now. When the open time has passed, the first caller becomes the half-open probe.
+	 * @return {@code true} if the request may be sent, {@code false} if it should fail fast.
+	 */
+	synchronized boolean tryAcquire()
+	{
+		switch (state)
+		{
+			case OPEN:
+				if (clock.instant().isBefore(openUntil))
+				{
+					return false;
+				}
+				state = State.HALF_OPEN;
+				probeInFlight = true;
+				return true;
+			case HALF_OPEN:
+				if (probeInFlight)
+				{
+					return false;
+				}
+				probeInFlight = true;
+				return true;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Records a request that reached a healthy API, closing the breaker.
+	 */
+	synchronized void onSuccess()
+	{
+		if (state != State.CLOSED)
+		{
+			log.debug("Circuit for '{}' closed", name);
+		}
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+		consecutiveOpenings = 0;
+		probeInFlight = false;
+	}
+
+	/**
+	 * Records a failed request, opening the breaker if the failure threshold is reached or the probe failed.
+	 * @param retryAfter The delay requested by the API through {@code Retry-After}, or {@code null} if none was given.
+	 * If the breaker opens, it stays open for at least that long, up to {@link #MAX_OPEN_DURATION}.
+	 */
+	synchronized void onFailure(Duration retryAfter)
+	{
+		probeInFlight = false;
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD)
+		{
+			Duration openFor = backoff(consecutiveOpenings);
+			if (retryAfter != null && retryAfter.compareTo(openFor) > 0)
+			{
+				openFor = retryAfter.compareTo(MAX_OPEN_DURATION) > 0 ? MAX_OPEN_DURATION : retryAfter;
+			}
+
+			consecutiveOpenings++;
+			state = State.OPEN;
+			openUntil = clock.instant().plus(openFor);
+			log.warn("Circuit for '{}' opened for {} seconds after {} consecutive failures",
+				name, openFor.getSeconds(), consecutiveFailures);
+		}
+	}
+
+	synchronized State getState()
+	{
+		return state;
+	}
+
+	/**
+	 * Gets the time left before the breaker lets a probe request through.
+	 * @return The remaining open time, {@link Duration#ZERO} if the breaker is not open.
+	 */
+	synchronized Duration getRemainingOpenTime()
+	{
+		if (state != State.OPEN)
+		{
+			return Duration.ZERO;
+		}
+		Duration remaining = Duration.between(clock.instant(), openUntil);
+		return remaining.isNegative() ? Duration.ZERO : remaining;
+	}
+
+	/**
+	 * Computes an exponential backoff with "equal jitter": half of the delay is fixed, the other half is random.
+	 * @param attempt The number of previous attempts, starting at 0.
+	 * @param base The delay for the first attempt.
+	 * @param max The maximum delay before jitter.
+	 * @return The jittered delay.
+	 */
+	static Duration jitteredBackoff(int attempt, Duration base, Duration max)
+	{
+		long cap = max.toMillis();
+		long delay = Math.min(cap, base.toMillis() << Math.min(attempt, 20));
+		long half = delay / 2;
+		return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(delay - half + 1));
+	}
+
+	private static Duration backoff(int openings)
+	{
+		return jitteredBackoff(openings, BASE_OPEN_DURATION, MAX_OPEN_DURATION);
+	}
+
+	/**
+	 * Parses a {@code Retry-After} header value, given either in seconds or as an HTTP date.
+	 * @param value The header value, may be {@code null}.
+	 * @return The requested delay, or {@code null} if the value is missing or cannot be parsed.
+	 */
+	static Duration parseRetryAfter(String value)
+	{
+		if (value == null || value.isEmpty())
+		{
+			return null;
+		}
+
+		try
+		{
+			return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+		}
+		catch (NumberFormatException ignored)
+		{
+		}
+
+		try
+		{
+			Duration delay = Duration.between(Instant.now(),
+				ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+			return delay.isNegative() ? Duration.ZERO : delay;
+		}
+		catch (DateTimeParseException ignored)
+		{
+			return null;
+		}
+	}
+}
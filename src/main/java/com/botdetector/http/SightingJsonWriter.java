@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import com.botdetector.model.CompactPlayerSighting;
+import com.botdetector.model.Trajectory;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Collection;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Writes {@link CompactPlayerSighting}s in the format expected by the API straight into a {@link JsonWriter},
+ * without converting them into {@link com.botdetector.model.PlayerSighting}s or building any {@code JsonElement} tree.
+ * The reporter name and manual flag are written on the same level as the sighting's fields,
+ * {@link KitType}s as {@code equip_<slot>_id} keys, booleans as {@code 0} or {@code 1} and the timestamp as epoch seconds.
+ */
+final class SightingJsonWriter
+{
+	/** API keys for the equipment slots, indexed by {@link KitType#ordinal()}. **/
+	private static final String[] EQUIPMENT_KEYS = new String[CompactPlayerSighting.EQUIPMENT_SLOTS];
+
+	static
+	{
+		for (KitType kitType : KitType.values())
+		{
+			EQUIPMENT_KEYS[kitType.ordinal()] = "equip_" + kitType.name().toLowerCase() + "_id";
+		}
+	}
+
+	private SightingJsonWriter()
+	{
+	}
+
+	/**
+	 * Writes the given sightings as a JSON array.
+	 * @param out The writer to write to.
+	 * @param sightings The sightings to write.
+	 * @param uploaderName The user's player name, written as the reporter of every sighting.
+	 * @param manual Whether the sightings are manually flagged as bots by the user.
+	 * @throws IOException If the underlying writer fails.
+	 */
+	static void writeSightings(JsonWriter out, Collection<CompactPlayerSighting> sightings, String uploaderName, boolean manual)
+		throws IOException
+	{
+		out.beginArray();
+		for (CompactPlayerSighting s : sightings)
+		{
+			writeSighting(out, s, uploaderName, manual);
+		}
+		out.endArray();
+	}
+
+	/**
+	 * Writes a single sighting as a JSON object.
+	 * @param out The writer to write to.
+	 * @param sighting The sighting to write.
+	 * @param uploaderName The user's player name, written as the reporter of the sighting.
+	 * @param manual Whether the sighting is manually flagged as a bot by the user.
+	 * @throws IOException If the underlying writer fails.
+	 */
+	static void writeSighting(JsonWriter out, CompactPlayerSighting sighting, String uploaderName, boolean manual)
+		throws IOException
+	{
+		out.beginObject();
+		out.name("reported").value(sighting.getPlayerName());
+		out.name("region_id").value(sighting.getRegionID());
+		out.name("x_coord").value(sighting.getWorldX());
+		out.name("y_coord").value(sighting.getWorldY());
+		out.name("z_coord").value(sighting.getPlane());
+
+		out.name("equipment").beginObject();
+		int[] equipment = sighting.getEquipment();
+		for (int i = 0; i < CompactPlayerSighting.EQUIPMENT_SLOTS; i++)
+		{
+			if (equipment[i] != CompactPlayerSighting.EMPTY_SLOT)
+			{
+				out.name(EQUIPMENT_KEYS[i]).value(equipment[i]);
+			}
+		}
+		out.endObject();
+
+		out.name("equipment_ge_value").value(sighting.getEquipmentGEValue());
+		out.name("world_number").value(sighting.getWorldNumber());
+		out.name("on_members_world").value(sighting.isInMembersWorld() ? 1 : 0);
+		out.name("on_pvp_world").value(sighting.isInPVPWorld() ? 1 : 0);
+		out.name("ts").value(sighting.getTimestampEpochSeconds());
+		if (sighting.getTrajectory() != null)
+		{
+			writeTrajectory(out.name("trajectory"), sighting.getTrajectory());
+		}
+		out.name("reporter").value(uploaderName);
+		out.name("manual_detect").value(manual ? 1 : 0);
+		out.endObject();
+	}
+
+	/**
+	 * Writes the start position and time, followed by the delta arrays of each step.
+	 */
+	private static void writeTrajectory(JsonWriter out, Trajectory trajectory) throws IOException
+	{
+		out.beginObject();
+		out.name("x_coord").value(trajectory.getStartX());
+		out.name("y_coord").value(trajectory.getStartY());
+		out.name("z_coord").value(trajectory.getStartPlane());
+		out.name("ts_ms").value(trajectory.getStartEpochMillis());
+
+		out.name("dx").beginArray();
+		for (short d : trajectory.getDx())
+		{
+			out.value(d);
+		}
+		out.endArray();
+		out.name("dy").beginArray();
+		for (short d : trajectory.getDy())
+		{
+			out.value(d);
+		}
+		out.endArray();
+		out.name("dz").beginArray();
+		for (byte d : trajectory.getDPlane())
+		{
+			out.value(d);
+		}
+		out.endArray();
+		out.name("dt").beginArray();
+		for (short d : trajectory.getDTicks())
+		{
+			out.value(d);
+		}
+		out.endArray();
+		out.endObject();
+	}
+}
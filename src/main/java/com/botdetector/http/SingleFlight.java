@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single in-flight {@link CompletableFuture} between concurrent callers asking for the same key,
+ * so that identical API calls made at the same time only hit the network once.
+ * @param <K> The type of the keys identifying identical calls.
+ * @param <V> The type of the calls' results.
+ */
+class SingleFlight<K, V>
+{
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Joins the call currently in flight for {@code key}, or starts a new one using {@code call}.
+	 * @param key The key identifying the call.
+	 * @param call Starts the call, only invoked if no call is in flight for {@code key}.
+	 * @return A future that will eventually return the result of the shared call.
+	 */
+	CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call)
+	{
+		calls.incrementAndGet();
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null)
+		{
+			coalesced.incrementAndGet();
+			return existing;
+		}
+
+		try
+		{
+			call.get().whenComplete((v, ex) ->
+			{
+				inFlight.remove(key, future);
+				if (ex != null)
+				{
+					future.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+				}
+				else
+				{
+					future.complete(v);
+				}
+			});
+		}
+		catch (RuntimeException ex)
+		{
+			inFlight.remove(key, future);
+			future.completeExceptionally(ex);
+		}
+
+		return future;
+	}
+
+	/**
+	 * @return The total number of calls made through {@link #execute(Object, Supplier)}.
+	 */
+	long getCalls()
+	{
+		return calls.get();
+	}
+
+	/**
+	 * @return The number of calls that joined another call already in flight.
+	 */
+	long getCoalesced()
+	{
+		return coalesced.get();
+	}
+
+	/**
+	 * @return The number of distinct calls currently in flight.
+	 */
+	int getInFlight()
+	{
+		return inFlight.size();
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Primitive backed variant of {@link PlayerSighting}, cheap to create when capturing players.
+ * Written for the API directly by the client, {@link #toPlayerSighting()} gives the equivalent {@link PlayerSighting} when needed.
+ */
+@Value
+@Builder(toBuilder = true)
+public class CompactPlayerSighting
+{
+	private static final KitType[] KIT_TYPES = KitType.values();
+
+	/** The length of {@link #equipment}, which is indexed by {@link KitType#ordinal()}. **/
+	public static final int EQUIPMENT_SLOTS = KIT_TYPES.length;
+
+	/** Value in {@link #equipment} for an empty equipment slot. **/
+	public static final int EMPTY_SLOT = -1;
+
+	String playerName;
+	int regionID;
+	int worldX;
+	int worldY;
+	int plane;
+	/**
+	 * Equipped item ids indexed by {@link KitType#ordinal()}, {@link #EMPTY_SLOT} if nothing is equipped in the slot.
+	 */
+	int[] equipment;
+	long equipmentGEValue;
+	int worldNumber;
+	boolean inMembersWorld;
+	boolean inPVPWorld;
+	long timestampEpochSeconds;
+	/**
+	 * The player's movement leading up to this sighting, {@code null} unless trajectory sampling is enabled.
+	 */
+	Trajectory trajectory;
+
+	/**
+	 * Converts this sighting into the {@link PlayerSighting} representation expected by the API.
+	 * @return A new {@link PlayerSighting} with the same data as this sighting.
+	 */
+	public PlayerSighting toPlayerSighting()
+	{
+		Map<KitType, Integer> equipmentMap = new EnumMap<>(KitType.class);
+		for (int i = 0; i < EQUIPMENT_SLOTS; i++)
+		{
+			if (equipment[i] != EMPTY_SLOT)
+			{
+				equipmentMap.put(KIT_TYPES[i], equipment[i]);
+			}
+		}
+
+		return PlayerSighting.builder()
+			.playerName(playerName)
+			.regionID(regionID)
+			.worldX(worldX)
+			.worldY(worldY)
+			.plane(plane)
+			.equipment(equipmentMap)
+			.equipmentGEValue(equipmentGEValue)
+			.worldNumber(worldNumber)
+			.inMembersWorld(inMembersWorld)
+			.inPVPWorld(inPVPWorld)
+			.timestamp(Instant.ofEpochSecond(timestampEpochSeconds))
+			.trajectory(trajectory)
+			.build();
+	}
+}
@@ -38,9 +38,17 @@ public class FeedbackPredictionLabel
 	Double labelConfidence;
 
 	public FeedbackPredictionLabel(String label, Double labelConfidence, FeedbackValue feedbackValue)
+	{
+		this(label, normalizeLabel(label), labelConfidence, feedbackValue);
+	}
+
+	/**
+	 * Creates a label with an already normalized display name, such as one from {@link LabelIndex#getDisplayName(String)}.
+	 */
+	public FeedbackPredictionLabel(String label, String normalizedLabel, Double labelConfidence, FeedbackValue feedbackValue)
 	{
 		this.label = label;
-		this.normalizedLabel = normalizeLabel(label);
+		this.normalizedLabel = normalizedLabel;
 		this.labelConfidence = labelConfidence;
 		this.feedbackValue = feedbackValue;
 	}
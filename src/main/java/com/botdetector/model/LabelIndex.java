@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable dictionary of the prediction labels known to the API, built once per labels refresh.
+ * Maps raw label strings to a single shared lowercase instance and to their display name,
+ * so that normalizing a prediction's labels is a lookup instead of new strings for every prediction.
+ */
+public class LabelIndex
+{
+	public static final LabelIndex EMPTY = new LabelIndex(ImmutableList.of());
+
+	/** Raw and lowercase label strings to their canonical lowercase instance. **/
+	private final Map<String, String> canonicalLabels;
+	/** Canonical labels to their display name (See {@link FeedbackPredictionLabel#normalizeLabel(String)}). **/
+	private final Map<String, String> displayNames;
+	/** The canonical labels, sorted. **/
+	private final ImmutableList<String> labels;
+
+	/**
+	 * Builds the index for the given raw labels.
+	 * @param rawLabels The labels as returned by the API.
+	 */
+	public LabelIndex(Collection<String> rawLabels)
+	{
+		Map<String, String> canonical = new HashMap<>();
+		Map<String, String> display = new HashMap<>();
+		TreeSet<String> sorted = new TreeSet<>();
+		for (String raw : rawLabels)
+		{
+			if (raw == null)
+			{
+				continue;
+			}
+
+			String lower = canonical.computeIfAbsent(raw.toLowerCase(), l -> l);
+			canonical.put(raw, lower);
+			display.putIfAbsent(lower, FeedbackPredictionLabel.normalizeLabel(lower));
+			sorted.add(lower);
+		}
+
+		this.canonicalLabels = ImmutableMap.copyOf(canonical);
+		this.displayNames = ImmutableMap.copyOf(display);
+		this.labels = ImmutableList.copyOf(sorted);
+	}
+
+	/**
+	 * Gets the canonical lowercase form of the given label.
+	 * @param label The label to canonicalize, in any case.
+	 * @return The shared canonical label if it is known, otherwise the label lowercased.
+	 */
+	public String canonicalize(String label)
+	{
+		if (label == null)
+		{
+			return null;
+		}
+
+		String canonical = canonicalLabels.get(label);
+		return canonical != null ? canonical : label.toLowerCase();
+	}
+
+	/**
+	 * Gets the display name of the given label.
+	 * @param label The canonical label (See {@link #canonicalize(String)}).
+	 * @return The pre-computed display name if the label is known, otherwise the label normalized on the fly.
+	 */
+	public String getDisplayName(String label)
+	{
+		if (label == null)
+		{
+			return null;
+		}
+
+		String display = displayNames.get(label);
+		return display != null ? display : FeedbackPredictionLabel.normalizeLabel(label);
+	}
+
+	/**
+	 * @return All canonical labels, sorted.
+	 */
+	public ImmutableList<String> getLabels()
+	{
+		return labels;
+	}
+}
@@ -68,4 +68,7 @@ public class PlayerSighting
 
 	@SerializedName("ts")
 	Instant timestamp;
+
+	@SerializedName("trajectory")
+	Trajectory trajectory;
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Outcome of an upload of {@link CompactPlayerSighting}s that was split into multiple requests.
+ */
+@Value
+public class SightingUploadResult
+{
+	/**
+	 * The sightings from requests that were successfully uploaded.
+	 */
+	List<CompactPlayerSighting> uploaded;
+
+	/**
+	 * The sightings from requests that failed and may be sent again later.
+	 */
+	List<CompactPlayerSighting> failed;
+
+	/**
+	 * The sightings from requests that the API rejected as invalid, these should not be sent again.
+	 */
+	List<CompactPlayerSighting> rejected;
+
+	/**
+	 * The first error encountered, or {@code null} if every request succeeded.
+	 */
+	Throwable firstError;
+
+	public boolean isFullySuccessful()
+	{
+		return failed.isEmpty() && rejected.isEmpty();
+	}
+}
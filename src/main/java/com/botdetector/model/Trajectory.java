@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import lombok.Value;
+
+/**
+ * Positions of a player sampled over time, delta-encoded against the first position.
+ * The {@code i}th step moves the player by {@code dx[i]}, {@code dy[i]} and {@code dPlane[i]} over {@code dTicks[i]} game ticks.
+ */
+@Value
+public class Trajectory
+{
+	/** Approximate length of a game tick, converts the length of steps to time. **/
+	public static final int GAME_TICK_MILLIS = 600;
+
+	int startX;
+	int startY;
+	int startPlane;
+	long startEpochMillis;
+	short[] dx;
+	short[] dy;
+	byte[] dPlane;
+	short[] dTicks;
+
+	/**
+	 * @return The world X coordinate after the last step.
+	 */
+	public int getEndX()
+	{
+		int x = startX;
+		for (short step : dx)
+		{
+			x += step;
+		}
+		return x;
+	}
+
+	/**
+	 * @return The world Y coordinate after the last step.
+	 */
+	public int getEndY()
+	{
+		int y = startY;
+		for (short step : dy)
+		{
+			y += step;
+		}
+		return y;
+	}
+
+	/**
+	 * @return The plane after the last step.
+	 */
+	public int getEndPlane()
+	{
+		int plane = startPlane;
+		for (byte step : dPlane)
+		{
+			plane += step;
+		}
+		return plane;
+	}
+
+	/**
+	 * @return The approximate time of the last step, as steps only record their length in game ticks.
+	 */
+	public long getEndEpochMillis()
+	{
+		long millis = startEpochMillis;
+		for (short ticks : dTicks)
+		{
+			millis += (long) ticks * GAME_TICK_MILLIS;
+		}
+		return millis;
+	}
+}
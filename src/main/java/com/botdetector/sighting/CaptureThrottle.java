@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the game tick and region each player was last captured at, to skip capturing a player again
+ * when they are seen in the same region within a short window, such as when respawning at the edge of the scene.
+ * Backed by primitive arrays using open addressing, so checking a player allocates nothing.
+ * Not thread-safe, intended to be used from the client thread only.
+ */
+public class CaptureThrottle
+{
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	/** Reserved key for empty slots. **/
+	private static final long EMPTY = 0;
+
+	private final int mask;
+	private final int maxOccupied;
+	private final long[] keys;
+	private final int[] ticks;
+	private final int[] regions;
+	private int occupied;
+
+	/** The number of captures skipped since the creation of this throttle. **/
+	private long skipped;
+
+	/**
+	 * @param capacity The number of slots, rounded up to a power of two. Should be well over the number of players in a scene.
+	 */
+	public CaptureThrottle(int capacity)
+	{
+		int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.maxOccupied = size / 4 * 3;
+		this.keys = new long[size];
+		this.ticks = new int[size];
+		this.regions = new int[size];
+	}
+
+	/**
+	 * Checks if the given player should be captured, and if so records the capture.
+	 * @param playerName The player's normalized name, compared case-insensitively.
+	 * @param regionId The player's current region.
+	 * @param tick The current game tick.
+	 * @param windowTicks A player captured in the same region less than this many ticks ago is skipped. {@code 0} never skips.
+	 * @return {@code true} if the player should be captured, {@code false} if the capture should be skipped.
+	 */
+	public boolean tryCapture(String playerName, int regionId, int tick, int windowTicks)
+	{
+		if (windowTicks <= 0)
+		{
+			return true;
+		}
+
+		long key = hash(playerName);
+		int reusable = -1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask)
+		{
+			long slotKey = keys[slot];
+			if (slotKey == EMPTY)
+			{
+				break;
+			}
+
+			boolean stale = tick - ticks[slot] >= windowTicks || tick < ticks[slot];
+			if (slotKey == key)
+			{
+				if (!stale && regions[slot] == regionId)
+				{
+					skipped++;
+					return false;
+				}
+				ticks[slot] = tick;
+				regions[slot] = regionId;
+				return true;
+			}
+
+			if (stale && reusable < 0)
+			{
+				// Stale slots stay occupied so that probe chains passing through them are not broken
+				reusable = slot;
+			}
+		}
+
+		if (reusable >= 0)
+		{
+			slot = reusable;
+		}
+		else if (occupied >= maxOccupied)
+		{
+			// Crowded with recent captures only, start over rather than probing a full table
+			clear();
+			slot = (int) (key ^ (key >>> 32)) & mask;
+			occupied++;
+		}
+		else
+		{
+			occupied++;
+		}
+
+		keys[slot] = key;
+		ticks[slot] = tick;
+		regions[slot] = regionId;
+		return true;
+	}
+
+	/**
+	 * Forgets all captures, such as when logging out.
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, EMPTY);
+		occupied = 0;
+	}
+
+	/**
+	 * @return The number of captures skipped by {@link #tryCapture(String, int, int, int)}.
+	 */
+	public long getSkipped()
+	{
+		return skipped;
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the lowercase name, without allocating a lowercase copy.
+	 */
+	private static long hash(String name)
+	{
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < name.length(); i++)
+		{
+			hash ^= Character.toLowerCase(name.charAt(i));
+			hash *= FNV_PRIME;
+		}
+		return hash == EMPTY ? 1 : hash;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.primitives.Ints;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Memoizes the total GE value of sets of worn equipment, since crowds and bot farms tend to wear identical gear.
+ * Sets are keyed by their sorted item ids, so the slots items are worn in do not matter.
+ * Not thread-safe, intended to be used from the client thread only.
+ */
+public class EquipmentValueCache
+{
+	private static final int MAXIMUM_SIZE = 2048;
+	/**
+	 * GE prices are refreshed by the client periodically without notifying plugins,
+	 * values are only kept for about as long as one set of prices is current.
+	 */
+	private static final int EXPIRE_AFTER_WRITE_MINUTES = 30;
+
+	private final IntToLongFunction itemPrice;
+	private final Cache<List<Integer>, Long> values = CacheBuilder.newBuilder()
+		.maximumSize(MAXIMUM_SIZE)
+		.expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES)
+		.recordStats()
+		.build();
+	private int[] sorted = new int[0];
+
+	/**
+	 * @param itemPrice Gives the GE price of a single item id.
+	 */
+	public EquipmentValueCache(IntToLongFunction itemPrice)
+	{
+		this.itemPrice = itemPrice;
+	}
+
+	/**
+	 * Gets the total GE value of the given equipment, computing it only if the same set of items was not valued recently.
+	 * @param equipment The worn item ids, where negative ids are empty slots.
+	 * @return The sum of the GE prices of the worn items.
+	 */
+	public long getValue(int[] equipment)
+	{
+		if (sorted.length != equipment.length)
+		{
+			sorted = new int[equipment.length];
+		}
+		System.arraycopy(equipment, 0, sorted, 0, equipment.length);
+		Arrays.sort(sorted);
+
+		// Only looked up through a view of the reused buffer, stored keys get their own copy
+		Long value = values.getIfPresent(Ints.asList(sorted));
+		if (value == null)
+		{
+			long total = 0;
+			for (int itemId : sorted)
+			{
+				if (itemId >= 0)
+				{
+					total += itemPrice.applyAsLong(itemId);
+				}
+			}
+			value = total;
+			values.put(Ints.asList(sorted.clone()), value);
+		}
+		return value;
+	}
+
+	/**
+	 * Forgets all values, such as when prices are known to have changed.
+	 */
+	public void invalidateAll()
+	{
+		values.invalidateAll();
+	}
+
+	/**
+	 * @return Hit and miss counts for the memoized values.
+	 */
+	public CacheStats getStats()
+	{
+		return values.stats();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides when sightings should be automatically flushed, according to the configured interval and the
+ * current amount of buffered sightings. Flushes happen early when the buffer grows large, are postponed while
+ * the buffer is nearly empty and are randomly offset to avoid all clients uploading at the same time.
+ * The time between two flushes always stays within {@code minimumMinutes} and {@code maximumMinutes}.
+ */
+public class FlushScheduler
+{
+	/** Maximum random delay added to each scheduled flush. **/
+	private static final long MAX_JITTER_MILLIS = 45_000;
+	/** Flush early once the buffer holds at least this many sightings. **/
+	private static final int PRESSURE_SIGHTINGS = 10_000;
+	/** Rough memory footprint of a buffered sighting, used to derive a pressure threshold from the heap size. **/
+	private static final long APPROX_SIGHTING_BYTES = 256;
+	/** Flush early once buffered sightings would roughly use this fraction of the maximum heap. **/
+	private static final double PRESSURE_HEAP_FRACTION = 0.01;
+	/** Postpone a scheduled flush while the buffer holds less than this many sightings. **/
+	private static final int BACKOFF_SIGHTINGS = 25;
+
+	private final Duration minimumInterval;
+	private final Duration maximumInterval;
+	private final int pressureSightings;
+
+	private Duration interval;
+	private Instant periodStart = Instant.MIN;
+	private Instant nextFlush = Instant.MAX;
+
+	public FlushScheduler(int minimumMinutes, int maximumMinutes)
+	{
+		this.minimumInterval = Duration.ofMinutes(minimumMinutes);
+		this.maximumInterval = Duration.ofMinutes(maximumMinutes);
+		this.interval = minimumInterval;
+		this.pressureSightings = (int) Math.min(PRESSURE_SIGHTINGS,
+			Runtime.getRuntime().maxMemory() * PRESSURE_HEAP_FRACTION / APPROX_SIGHTING_BYTES);
+	}
+
+	/**
+	 * Starts a new flush period, scheduling the next flush after the given interval.
+	 * @param now The current time, usually the time of the last flush.
+	 * @param intervalMinutes The configured time between flushes, constrained to the minimum and maximum.
+	 */
+	public synchronized void reset(Instant now, int intervalMinutes)
+	{
+		Duration requested = Duration.ofMinutes(intervalMinutes);
+		interval = requested.compareTo(minimumInterval) < 0 ? minimumInterval
+			: requested.compareTo(maximumInterval) > 0 ? maximumInterval : requested;
+		periodStart = now;
+		nextFlush = withJitter(now.plus(interval));
+	}
+
+	/**
+	 * Checks if a flush should happen now. Postpones the next flush if it is due while the buffer is nearly empty.
+	 * @param now The current time.
+	 * @param bufferedSightings The number of sightings currently buffered.
+	 * @return {@code true} if the buffered sightings should be flushed now.
+	 */
+	public synchronized boolean shouldFlush(Instant now, int bufferedSightings)
+	{
+		Duration sincePeriodStart = Duration.between(periodStart, now);
+		if (bufferedSightings >= pressureSightings && sincePeriodStart.compareTo(minimumInterval) >= 0)
+		{
+			return true;
+		}
+
+		if (now.isBefore(nextFlush))
+		{
+			return false;
+		}
+
+		if (bufferedSightings < BACKOFF_SIGHTINGS && sincePeriodStart.compareTo(maximumInterval) < 0)
+		{
+			Instant latest = periodStart.plus(maximumInterval);
+			Instant postponed = withJitter(now.plus(interval));
+			nextFlush = postponed.isAfter(latest) ? latest : postponed;
+			return false;
+		}
+
+		return true;
+	}
+
+	private static Instant withJitter(Instant time)
+	{
+		return time.plusMillis(ThreadLocalRandom.current().nextLong(MAX_JITTER_MILLIS + 1));
+	}
+}
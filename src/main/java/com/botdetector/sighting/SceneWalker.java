@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import java.util.ArrayDeque;
+import java.util.function.Predicate;
+import net.runelite.api.Player;
+import net.runelite.api.WorldView;
+
+/**
+ * Visits the players of a world view and all of its nested world views, such as boats,
+ * iteratively and without collecting them, reusing the same stack between walks.
+ * Not thread-safe nor reentrant, intended to be used from the client thread only.
+ */
+public class SceneWalker
+{
+	private final ArrayDeque<WorldView> stack = new ArrayDeque<>();
+
+	/**
+	 * Visits every player in {@code top} and its nested world views.
+	 * @param top The world view to start from, usually the top level world view.
+	 * @param visitor Called for each player, returning {@code false} stops the walk early.
+	 * @return {@code false} if there was no world view to walk, {@code true} otherwise.
+	 */
+	public boolean walk(WorldView top, Predicate<Player> visitor)
+	{
+		if (top == null)
+		{
+			return false;
+		}
+
+		walkRange(top, 0, Integer.MAX_VALUE, visitor);
+		return true;
+	}
+
+	/**
+	 * Visits every player in {@code top} and its nested world views, starting from the player at {@code start}
+	 * in walk order and wrapping around to the ones before it, so that walks stopped early can resume where they left off.
+	 * @param top The world view to start from, usually the top level world view.
+	 * @param start The position in walk order of the first player to visit, as returned by the previous walk.
+	 * @param visitor Called for each player, returning {@code false} stops the walk early.
+	 * @return The position to start the next walk from, or {@code 0} if every player was visited or there was no world view.
+	 */
+	public int walkFrom(WorldView top, int start, Predicate<Player> visitor)
+	{
+		if (top == null)
+		{
+			return 0;
+		}
+
+		int stoppedAt = walkRange(top, start, Integer.MAX_VALUE, visitor);
+		if (stoppedAt < 0 && start > 0)
+		{
+			stoppedAt = walkRange(top, 0, start, visitor);
+		}
+		return Math.max(stoppedAt, 0);
+	}
+
+	/**
+	 * Visits the players of {@code top} and its nested world views whose position in walk order is within {@code [from, to)}.
+	 * @return The position after the player that stopped the walk, or {@code -1} if the walk was not stopped.
+	 */
+	private int walkRange(WorldView top, int from, int to, Predicate<Player> visitor)
+	{
+		int index = 0;
+		stack.push(top);
+		try
+		{
+			while (!stack.isEmpty())
+			{
+				WorldView wv = stack.pop();
+				for (Player player : wv.players())
+				{
+					if (player == null)
+					{
+						continue;
+					}
+
+					if (index >= to)
+					{
+						return -1;
+					}
+
+					index++;
+					if (index > from && !visitor.test(player))
+					{
+						return index;
+					}
+				}
+
+				for (WorldView sub : wv.worldViews())
+				{
+					if (sub != null)
+					{
+						stack.push(sub);
+					}
+				}
+			}
+			return -1;
+		}
+		finally
+		{
+			stack.clear();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.CompactPlayerSighting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Value;
+import static com.botdetector.model.CaseInsensitiveString.wrap;
+
+/**
+ * Concurrent buffer containing the last {@link CompactPlayerSighting} for each {@code player} and {@code regionId} pair.
+ * Each pair is its own entry, so adding sightings never waits on a drain running on another thread.
+ */
+public class SightingBuffer
+{
+	private final ConcurrentHashMap<SightingKey, CompactPlayerSighting> sightings = new ConcurrentHashMap<>();
+
+	/**
+	 * Puts the given sighting in the buffer, replacing any previous sighting for the same player and region.
+	 * @param name The normalized and wrapped player name.
+	 * @param sighting The sighting to put.
+	 */
+	public void put(CaseInsensitiveString name, CompactPlayerSighting sighting)
+	{
+		sightings.put(new SightingKey(name, sighting.getRegionID()), sighting);
+	}
+
+	/**
+	 * Puts back the given sightings in the buffer, but only for player and region
+	 * pairs that did not receive a new sighting since they were drained.
+	 * @param toRestore The sightings to put back.
+	 */
+	public void restore(Collection<CompactPlayerSighting> toRestore)
+	{
+		for (CompactPlayerSighting s : toRestore)
+		{
+			sightings.putIfAbsent(new SightingKey(wrap(s.getPlayerName()), s.getRegionID()), s);
+		}
+	}
+
+	/**
+	 * Removes and returns every sighting currently in the buffer.
+	 * Sightings added while draining are either returned or left in the buffer, never lost.
+	 * @return The drained sightings.
+	 */
+	public List<CompactPlayerSighting> drain()
+	{
+		List<CompactPlayerSighting> drained = new ArrayList<>(sightings.size());
+		for (SightingKey key : sightings.keySet())
+		{
+			CompactPlayerSighting s = sightings.remove(key);
+			if (s != null)
+			{
+				drained.add(s);
+			}
+		}
+		return drained;
+	}
+
+	/**
+	 * @return The number of player and region pairs currently in the buffer.
+	 */
+	public int size()
+	{
+		return sightings.size();
+	}
+
+	public boolean isEmpty()
+	{
+		return sightings.isEmpty();
+	}
+
+	public void clear()
+	{
+		sightings.clear();
+	}
+
+	/**
+	 * Counts the number of unique player names in the given sightings.
+	 * @param sightings The sightings to count from.
+	 * @return The number of unique player names.
+	 */
+	public static int countUniqueNames(Collection<CompactPlayerSighting> sightings)
+	{
+		Set<CaseInsensitiveString> names = new HashSet<>();
+		for (CompactPlayerSighting s : sightings)
+		{
+			names.add(wrap(s.getPlayerName()));
+		}
+		return names.size();
+	}
+
+	@Value
+	private static class SightingKey
+	{
+		CaseInsensitiveString name;
+		int regionId;
+	}
+}
@@ -0,0 +1,689 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import com.botdetector.model.CompactPlayerSighting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only on-disk spool of captured {@link CompactPlayerSighting}s, so that sightings survive
+ * client crashes and failed uploads. The spool is split into segment files: a {@link #checkpoint()}
+ * seals the current segments before a flush, and {@link #release(Checkpoint, Collection)} deletes the sealed
+ * segments once the flush is done.
+ * <p>
+ * Each spool writes into its own session directory, locked for as long as the spool is open, so that several
+ * clients can share the same spool directory. Every segment starts with the {@link Owner} its sightings were
+ * captured under, and the segments of sessions that are no longer running are only replayed by
+ * {@link #setOwner(Owner)} for that same owner.
+ * All disk operations run on a dedicated thread, so appending never blocks the caller.
+ */
+@Slf4j
+public class SightingSpool
+{
+	private static final String SESSION_PREFIX = "session-";
+	private static final String LOCK_FILE_NAME = "session.lock";
+	private static final String SEGMENT_PREFIX = "sightings-";
+	private static final String SEGMENT_SUFFIX = ".spool";
+	private static final int FORMAT_VERSION = 1;
+	/** Segments are rotated past this size, so that no single file grows too large. **/
+	private static final long MAX_SEGMENT_BYTES = 16L * 1024 * 1024;
+	/** Stop spooling past this many unreleased bytes, in case flushing has been failing for a very long time. **/
+	private static final long MAX_UNSEALED_BYTES = 256L * 1024 * 1024;
+	/** Leftover segments of other owners are deleted once they are this old, in case that owner never logs in again. **/
+	private static final long MAX_LEFTOVER_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+	/**
+	 * Session directories locked by the spools of this process. Checked before touching their lock files,
+	 * since closing any channel to a locked file may release the locks this process holds on it.
+	 */
+	private static final Set<File> LOCKED_SESSIONS = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The identity sightings are uploaded under, so that spooled sightings are never replayed under another.
+	 */
+	@Value
+	public static class Owner
+	{
+		String playerName;
+		boolean anonymous;
+
+		private boolean matches(Owner other)
+		{
+			return other != null && anonymous == other.anonymous && playerName.equalsIgnoreCase(other.playerName);
+		}
+	}
+
+	private final File directory;
+	private final ThreadPoolExecutor writer;
+
+	// Only accessed from the writer thread
+	private File sessionDirectory;
+	private FileChannel lockChannel;
+	private FileLock sessionLock;
+	private DataOutputStream out;
+	private File currentSegment;
+	private long nextSegmentId;
+	private int currentSegmentSightings;
+	private Owner owner;
+	/** Segments rotated since the last checkpoint, sealed along with the current segment by the next checkpoint. **/
+	private final List<File> rotatedSegments = new ArrayList<>();
+	private long rotatedBytes;
+	private boolean full;
+
+	/**
+	 * Token returned by {@link #checkpoint()}, used to release the sealed segments when the flush completes.
+	 */
+	public static class Checkpoint
+	{
+		private final CompletableFuture<List<File>> sealedSegments;
+
+		private Checkpoint(CompletableFuture<List<File>> sealedSegments)
+		{
+			this.sealedSegments = sealedSegments;
+		}
+	}
+
+	public SightingSpool(File directory)
+	{
+		this.directory = directory;
+		this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+			new ThreadFactoryBuilder().setNameFormat("bot-detector-spool").setDaemon(true).build());
+	}
+
+	/**
+	 * Opens the spool for appending, in a new session directory locked by this spool until {@link #close()}.
+	 * Sightings are spooled without an owner until {@link #setOwner(Owner)} is called.
+	 * @return A future that completes once the spool is open.
+	 */
+	public CompletableFuture<Void> open()
+	{
+		return CompletableFuture.runAsync(() ->
+		{
+			sessionDirectory = new File(directory, SESSION_PREFIX + UUID.randomUUID());
+			if (!sessionDirectory.mkdirs())
+			{
+				log.warn("Could not create sighting spool directory {}", sessionDirectory);
+				sessionDirectory = null;
+				return;
+			}
+
+			try
+			{
+				lockChannel = FileChannel.open(new File(sessionDirectory, LOCK_FILE_NAME).toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				sessionLock = lockChannel.tryLock();
+				LOCKED_SESSIONS.add(sessionDirectory);
+			}
+			catch (IOException ex)
+			{
+				log.warn("Could not lock sighting spool directory {}", sessionDirectory, ex);
+			}
+
+			openNewSegment();
+		}, writer);
+	}
+
+	/**
+	 * Sets the owner of the sightings appended from now on, starting a new segment if the owner changed.
+	 * Then claims the segments left over by sessions that are no longer running and belong to the same owner,
+	 * copying their sightings into the current segment. Leftovers of other owners are left alone for a while.
+	 * @param newOwner The identity sightings are now captured under, {@code null} if unknown such as when logged out.
+	 * @return A future that will eventually return the claimed leftover sightings, in the order they were appended.
+	 */
+	public CompletableFuture<List<CompactPlayerSighting>> setOwner(Owner newOwner)
+	{
+		CompletableFuture<List<CompactPlayerSighting>> future = new CompletableFuture<>();
+		try
+		{
+			writer.execute(() ->
+			{
+				try
+				{
+					if (owner == null ? newOwner != null : !owner.equals(newOwner))
+					{
+						owner = newOwner;
+						rotateSegment();
+					}
+					future.complete(newOwner != null && out != null ? claimLeftovers(newOwner) : Collections.emptyList());
+				}
+				catch (RuntimeException ex)
+				{
+					future.completeExceptionally(ex);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex)
+		{
+			future.complete(Collections.emptyList());
+		}
+		return future;
+	}
+
+	/**
+	 * Appends the given sighting to the current segment in the background.
+	 * Callers must order this call with {@link #checkpoint()} the same way they order adding the sighting
+	 * to the buffer with draining it, so that a sighting is in a sealed segment if and only if it is being uploaded.
+	 * @param sighting The sighting to append.
+	 */
+	public void append(CompactPlayerSighting sighting)
+	{
+		execute(() ->
+		{
+			write(sighting);
+			// Only hit the disk once there are no more sightings waiting to be written
+			if (writer.getQueue().isEmpty())
+			{
+				flushQuietly();
+			}
+		});
+	}
+
+	/**
+	 * Seals the current segments and starts a new one. Must be called <b>before</b> draining the sightings
+	 * that are about to be uploaded, see {@link #append(CompactPlayerSighting)}.
+	 * @return A checkpoint to give to {@link #release(Checkpoint, Collection)} when the upload completes.
+	 */
+	public Checkpoint checkpoint()
+	{
+		CompletableFuture<List<File>> sealed = new CompletableFuture<>();
+		try
+		{
+			writer.execute(() ->
+			{
+				rotateSegment();
+				sealed.complete(new ArrayList<>(rotatedSegments));
+				rotatedSegments.clear();
+				rotatedBytes = 0;
+				full = false;
+			});
+		}
+		catch (RejectedExecutionException ex)
+		{
+			sealed.complete(Collections.emptyList());
+		}
+		return new Checkpoint(sealed);
+	}
+
+	/**
+	 * Releases the segments sealed by the given checkpoint, after appending the sightings that still need to be kept.
+	 * If the sightings to keep cannot be appended anymore (spool closed), the sealed segments are kept instead.
+	 * @param checkpoint The checkpoint obtained before the upload.
+	 * @param toKeep The sightings from the checkpoint that were not uploaded and should not be lost.
+	 * @return A future that completes once the sealed segments are released or kept.
+	 */
+	public CompletableFuture<Void> release(Checkpoint checkpoint, Collection<CompactPlayerSighting> toKeep)
+	{
+		return checkpoint.sealedSegments.thenCompose(segments ->
+		{
+			if (toKeep.isEmpty())
+			{
+				segments.forEach(SightingSpool::deleteFile);
+				return CompletableFuture.completedFuture(null);
+			}
+
+			CompletableFuture<Void> released = new CompletableFuture<>();
+			try
+			{
+				writer.execute(() ->
+				{
+					toKeep.forEach(this::write);
+					flushQuietly();
+					segments.forEach(SightingSpool::deleteFile);
+					released.complete(null);
+				});
+			}
+			catch (RejectedExecutionException ex)
+			{
+				log.debug("Sighting spool is closed, keeping the sealed segments");
+				released.complete(null);
+			}
+			return released;
+		});
+	}
+
+	/**
+	 * Flushes and closes the current segment, then stops the writer thread.
+	 * The session directory is unlocked and kept on disk, to be claimed by the next spool with the same owner.
+	 */
+	public void close()
+	{
+		execute(() ->
+		{
+			closeSegment();
+			unlockSession();
+		});
+		writer.shutdown();
+		try
+		{
+			writer.awaitTermination(1, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void execute(Runnable task)
+	{
+		try
+		{
+			writer.execute(task);
+		}
+		catch (RejectedExecutionException ex)
+		{
+			log.debug("Sighting spool is closed, ignoring operation");
+		}
+	}
+
+	/**
+	 * Reads and deletes the segments of the unlocked session directories that belong to {@code claimant},
+	 * writing their sightings into the current segment first. Deletes the other owners' old segments.
+	 */
+	private List<CompactPlayerSighting> claimLeftovers(Owner claimant)
+	{
+		File[] sessions = directory.listFiles(file -> file.isDirectory() && file.getName().startsWith(SESSION_PREFIX)
+			&& !LOCKED_SESSIONS.contains(file));
+		if (sessions == null)
+		{
+			return Collections.emptyList();
+		}
+
+		List<CompactPlayerSighting> claimed = new ArrayList<>();
+		for (File session : sessions)
+		{
+			File lockFile = new File(session, LOCK_FILE_NAME);
+			try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+			{
+				FileLock lock;
+				try
+				{
+					lock = channel.tryLock();
+				}
+				catch (OverlappingFileLockException ex)
+				{
+					// Being claimed by another spool of this same process
+					lock = null;
+				}
+
+				if (lock == null)
+				{
+					continue;
+				}
+
+				boolean empty = true;
+				try
+				{
+					for (File segment : listSegments(session))
+					{
+						if (claimSegment(segment, claimant, claimed))
+						{
+							deleteFile(segment);
+						}
+						else
+						{
+							empty = false;
+						}
+					}
+				}
+				finally
+				{
+					lock.release();
+				}
+
+				if (empty)
+				{
+					channel.close();
+					deleteFile(lockFile);
+					deleteFile(session);
+				}
+			}
+			catch (IOException ex)
+			{
+				log.warn("Could not claim sighting spool directory {}", session, ex);
+			}
+		}
+
+		flushQuietly();
+		if (!claimed.isEmpty())
+		{
+			log.debug("Replayed {} sightings from the sighting spool", claimed.size());
+		}
+		return claimed;
+	}
+
+	/**
+	 * Reads the given leftover segment into {@code claimed} and the current segment if it belongs to {@code claimant}.
+	 * @return {@code true} if the segment can be deleted, either because it was claimed or because it is unusable or too old.
+	 */
+	private boolean claimSegment(File segment, Owner claimant, List<CompactPlayerSighting> claimed)
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment))))
+		{
+			if (in.readInt() != FORMAT_VERSION)
+			{
+				log.warn("Dropping sighting spool segment {} with unknown format", segment);
+				return true;
+			}
+
+			Owner segmentOwner = in.readBoolean() ? new Owner(in.readUTF(), in.readBoolean()) : null;
+			if (segmentOwner == null)
+			{
+				// Captured while logged out, can't be attributed to anyone
+				return true;
+			}
+
+			if (!segmentOwner.matches(claimant))
+			{
+				return System.currentTimeMillis() - segment.lastModified() > MAX_LEFTOVER_AGE_MILLIS;
+			}
+
+			List<CompactPlayerSighting> sightings = new ArrayList<>();
+			readSightings(in, segment, sightings);
+			sightings.forEach(this::write);
+			claimed.addAll(sightings);
+			return true;
+		}
+		catch (EOFException ex)
+		{
+			// Not even a full header, e.g. from a crash right after creating the segment
+			return true;
+		}
+		catch (IOException ex)
+		{
+			log.warn("Error reading sighting spool segment {}", segment, ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Seals the current segment, if it has any sightings, and opens a new one for the current {@link #owner}.
+	 */
+	private void rotateSegment()
+	{
+		if (out != null && currentSegmentSightings > 0)
+		{
+			rotatedBytes += out.size();
+			closeSegment();
+			rotatedSegments.add(currentSegment);
+		}
+		else
+		{
+			closeSegment();
+			if (currentSegment != null)
+			{
+				deleteFile(currentSegment);
+			}
+		}
+		openNewSegment();
+	}
+
+	private void openNewSegment()
+	{
+		if (sessionDirectory == null)
+		{
+			return;
+		}
+
+		currentSegment = new File(sessionDirectory, SEGMENT_PREFIX + nextSegmentId++ + SEGMENT_SUFFIX);
+		currentSegmentSightings = 0;
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(currentSegment)));
+			out.writeInt(FORMAT_VERSION);
+			out.writeBoolean(owner != null);
+			if (owner != null)
+			{
+				out.writeUTF(owner.getPlayerName());
+				out.writeBoolean(owner.isAnonymous());
+			}
+		}
+		catch (IOException ex)
+		{
+			log.warn("Could not open sighting spool segment {}", currentSegment, ex);
+			out = null;
+		}
+	}
+
+	private void closeSegment()
+	{
+		if (out == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.close();
+		}
+		catch (IOException ex)
+		{
+			log.warn("Error closing sighting spool segment {}", currentSegment, ex);
+		}
+		out = null;
+	}
+
+	private void unlockSession()
+	{
+		try
+		{
+			if (sessionLock != null)
+			{
+				sessionLock.release();
+			}
+			if (lockChannel != null)
+			{
+				lockChannel.close();
+			}
+		}
+		catch (IOException ex)
+		{
+			log.warn("Error unlocking sighting spool directory {}", sessionDirectory, ex);
+		}
+		sessionLock = null;
+		lockChannel = null;
+		if (sessionDirectory != null)
+		{
+			LOCKED_SESSIONS.remove(sessionDirectory);
+		}
+	}
+
+	private void flushQuietly()
+	{
+		if (out == null)
+		{
+			return;
+		}
+
+		try
+		{
+			out.flush();
+		}
+		catch (IOException ex)
+		{
+			log.warn("Error flushing sighting spool segment {}", currentSegment, ex);
+		}
+	}
+
+	private void write(CompactPlayerSighting s)
+	{
+		if (out == null || full)
+		{
+			return;
+		}
+
+		if (out.size() >= MAX_SEGMENT_BYTES)
+		{
+			if (rotatedBytes + out.size() >= MAX_UNSEALED_BYTES)
+			{
+				log.warn("Sighting spool has reached {} bytes without a successful flush,"
+					+ " new sightings will not be spooled until the next flush", MAX_UNSEALED_BYTES);
+				full = true;
+				return;
+			}
+			rotateSegment();
+			if (out == null)
+			{
+				return;
+			}
+		}
+
+		try
+		{
+			out.writeUTF(s.getPlayerName());
+			out.writeInt(s.getRegionID());
+			out.writeInt(s.getWorldX());
+			out.writeInt(s.getWorldY());
+			out.writeInt(s.getPlane());
+			int[] equipment = s.getEquipment();
+			out.writeByte(equipment.length);
+			for (int itemId : equipment)
+			{
+				out.writeInt(itemId);
+			}
+			out.writeLong(s.getEquipmentGEValue());
+			out.writeInt(s.getWorldNumber());
+			out.writeBoolean(s.isInMembersWorld());
+			out.writeBoolean(s.isInPVPWorld());
+			out.writeLong(s.getTimestampEpochSeconds());
+			currentSegmentSightings++;
+		}
+		catch (IOException ex)
+		{
+			log.warn("Error writing to sighting spool segment {}", currentSegment, ex);
+			closeSegment();
+		}
+	}
+
+	private static void readSightings(DataInputStream in, File segment, List<CompactPlayerSighting> into)
+	{
+		try
+		{
+			while (true)
+			{
+				String playerName = in.readUTF();
+				int regionId = in.readInt();
+				int worldX = in.readInt();
+				int worldY = in.readInt();
+				int plane = in.readInt();
+				int[] equipment = new int[CompactPlayerSighting.EQUIPMENT_SLOTS];
+				Arrays.fill(equipment, CompactPlayerSighting.EMPTY_SLOT);
+				int slots = in.readUnsignedByte();
+				for (int i = 0; i < slots; i++)
+				{
+					int itemId = in.readInt();
+					if (i < equipment.length)
+					{
+						equipment[i] = itemId;
+					}
+				}
+
+				into.add(CompactPlayerSighting.builder()
+					.playerName(playerName)
+					.regionID(regionId)
+					.worldX(worldX)
+					.worldY(worldY)
+					.plane(plane)
+					.equipment(equipment)
+					.equipmentGEValue(in.readLong())
+					.worldNumber(in.readInt())
+					.inMembersWorld(in.readBoolean())
+					.inPVPWorld(in.readBoolean())
+					.timestampEpochSeconds(in.readLong())
+					.build());
+			}
+		}
+		catch (EOFException ex)
+		{
+			// End of segment, a partially written last record (e.g. from a crash) is dropped
+		}
+		catch (IOException ex)
+		{
+			log.warn("Error reading sighting spool segment {}", segment, ex);
+		}
+	}
+
+	private static File[] listSegments(File session)
+	{
+		File[] segments = session.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		if (segments == null)
+		{
+			return new File[0];
+		}
+
+		Arrays.sort(segments, Comparator.comparingLong(SightingSpool::parseSegmentId));
+		return segments;
+	}
+
+	private static long parseSegmentId(File segment)
+	{
+		String name = segment.getName();
+		try
+		{
+			return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		}
+		catch (NumberFormatException ex)
+		{
+			return -1;
+		}
+	}
+
+	private static void deleteFile(File file)
+	{
+		if (file.exists() && !file.delete())
+		{
+			log.warn("Could not delete sighting spool file {}", file);
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.sighting;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.Trajectory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the positions of players sampled at regular game tick intervals into fixed size ring buffers of deltas,
+ * so that memory use is bounded by the number of players and points per player no matter how long players are tracked.
+ * Stationary samples are not recorded, the next step's tick delta accounts for the time spent standing still.
+ */
+public class TrajectoryRecorder
+{
+	private final int stepsPerPlayer;
+	private final Map<CaseInsensitiveString, Track> tracks;
+
+	/**
+	 * @param maxPlayers The maximum number of players tracked at once, the least recently sampled player is dropped beyond that.
+	 * @param stepsPerPlayer The maximum number of steps kept per player, the oldest step is dropped beyond that.
+	 */
+	public TrajectoryRecorder(int maxPlayers, int stepsPerPlayer)
+	{
+		this.stepsPerPlayer = stepsPerPlayer;
+		this.tracks = new LinkedHashMap<CaseInsensitiveString, Track>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CaseInsensitiveString, Track> eldest)
+			{
+				return size() > maxPlayers;
+			}
+		};
+	}
+
+	/**
+	 * Records a sampled position for the given player.
+	 * @param name The player's normalized and wrapped name.
+	 * @param x The player's world X coordinate.
+	 * @param y The player's world Y coordinate.
+	 * @param plane The player's plane.
+	 * @param tick The game tick of the sample.
+	 * @param epochMillis The time of the sample.
+	 */
+	public synchronized void record(CaseInsensitiveString name, int x, int y, int plane, int tick, long epochMillis)
+	{
+		Track track = tracks.get(name);
+		if (track == null)
+		{
+			track = new Track(stepsPerPlayer);
+			track.reset(x, y, plane, tick, epochMillis);
+			tracks.put(name, track);
+		}
+		else
+		{
+			track.add(x, y, plane, tick, epochMillis);
+		}
+	}
+
+	/**
+	 * Takes the trajectory recorded for the given player, so that it is not returned again.
+	 * The player's last position is kept as the start of their next trajectory.
+	 * @param name The player's normalized and wrapped name.
+	 * @return The player's trajectory, or {@code null} if they have not moved since being tracked or last taken.
+	 */
+	public synchronized Trajectory take(CaseInsensitiveString name)
+	{
+		Track track = tracks.get(name);
+		if (track == null || track.count == 0)
+		{
+			return null;
+		}
+
+		Trajectory trajectory = track.toTrajectory();
+		track.reset(track.lastX, track.lastY, track.lastPlane, track.lastTick, track.lastEpochMillis);
+		return trajectory;
+	}
+
+	/**
+	 * @return The names of the players that moved since being tracked or last taken, in no particular order.
+	 */
+	public synchronized List<CaseInsensitiveString> getMovedPlayers()
+	{
+		List<CaseInsensitiveString> moved = new ArrayList<>();
+		// Iterating the entries does not count as an access for the recently sampled order
+		for (Map.Entry<CaseInsensitiveString, Track> entry : tracks.entrySet())
+		{
+			if (entry.getValue().count > 0)
+			{
+				moved.add(entry.getKey());
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * @return The number of players currently tracked.
+	 */
+	public synchronized int size()
+	{
+		return tracks.size();
+	}
+
+	/**
+	 * Stops tracking all players.
+	 */
+	public synchronized void clear()
+	{
+		tracks.clear();
+	}
+
+	private static class Track
+	{
+		private final short[] dx;
+		private final short[] dy;
+		private final byte[] dPlane;
+		private final short[] dTicks;
+		/** Index of the oldest step in the ring buffers. **/
+		private int head;
+		private int count;
+
+		private int startX;
+		private int startY;
+		private int startPlane;
+		private long startEpochMillis;
+
+		private int lastX;
+		private int lastY;
+		private int lastPlane;
+		private int lastTick;
+		private long lastEpochMillis;
+
+		private Track(int capacity)
+		{
+			dx = new short[capacity];
+			dy = new short[capacity];
+			dPlane = new byte[capacity];
+			dTicks = new short[capacity];
+		}
+
+		private void reset(int x, int y, int plane, int tick, long epochMillis)
+		{
+			startX = lastX = x;
+			startY = lastY = y;
+			startPlane = lastPlane = plane;
+			lastTick = tick;
+			startEpochMillis = lastEpochMillis = epochMillis;
+			head = 0;
+			count = 0;
+		}
+
+		private void add(int x, int y, int plane, int tick, long epochMillis)
+		{
+			int stepX = x - lastX;
+			int stepY = y - lastY;
+			int stepPlane = plane - lastPlane;
+			int stepTicks = tick - lastTick;
+			if (stepX == 0 && stepY == 0 && stepPlane == 0 && stepTicks > 0 && stepTicks <= Short.MAX_VALUE)
+			{
+				return;
+			}
+
+			// Teleports, hops and tick counter resets don't fit the deltas, start over from the new position
+			if (stepTicks <= 0 || stepTicks > Short.MAX_VALUE
+				|| stepX < Short.MIN_VALUE || stepX > Short.MAX_VALUE
+				|| stepY < Short.MIN_VALUE || stepY > Short.MAX_VALUE
+				|| stepPlane < Byte.MIN_VALUE || stepPlane > Byte.MAX_VALUE)
+			{
+				reset(x, y, plane, tick, epochMillis);
+				return;
+			}
+
+			if (count == dx.length)
+			{
+				// Fold the oldest step into the start position
+				startX += dx[head];
+				startY += dy[head];
+				startPlane += dPlane[head];
+				startEpochMillis += (long) dTicks[head] * Trajectory.GAME_TICK_MILLIS;
+				head = (head + 1) % dx.length;
+				count--;
+			}
+
+			int slot = (head + count) % dx.length;
+			dx[slot] = (short) stepX;
+			dy[slot] = (short) stepY;
+			dPlane[slot] = (byte) stepPlane;
+			dTicks[slot] = (short) stepTicks;
+			count++;
+
+			lastX = x;
+			lastY = y;
+			lastPlane = plane;
+			lastTick = tick;
+			lastEpochMillis = epochMillis;
+		}
+
+		private Trajectory toTrajectory()
+		{
+			short[] outX = new short[count];
+			short[] outY = new short[count];
+			byte[] outPlane = new byte[count];
+			short[] outTicks = new short[count];
+			for (int i = 0; i < count; i++)
+			{
+				int slot = (head + i) % dx.length;
+				outX[i] = dx[slot];
+				outY[i] = dy[slot];
+				outPlane[i] = dPlane[slot];
+				outTicks[i] = dTicks[slot];
+			}
+			return new Trajectory(startX, startY, startPlane, startEpochMillis, outX, outY, outPlane, outTicks);
+		}
+	}
+}
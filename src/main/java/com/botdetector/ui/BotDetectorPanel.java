@@ -31,10 +31,10 @@ import static com.botdetector.BotDetectorPlugin.normalizeAndWrapPlayerName;
 import com.botdetector.events.BotDetectorPanelActivated;
 import com.botdetector.http.BotDetectorClient;
 import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.CompactPlayerSighting;
 import com.botdetector.model.FeedbackValue;
 import com.botdetector.model.FeedbackPredictionLabel;
-import static com.botdetector.model.FeedbackPredictionLabel.normalizeLabel;
-import com.botdetector.model.PlayerSighting;
+import com.botdetector.model.LabelIndex;
 import com.botdetector.model.PlayerStats;
 import com.botdetector.model.PlayerStatsType;
 import com.botdetector.model.Prediction;
@@ -225,7 +225,7 @@ public class BotDetectorPanel extends PluginPanel
 	private JButton flaggingYesButton;
 	private JButton flaggingNoButton;
 	private Prediction lastPrediction;
-	private PlayerSighting lastPredictionPlayerSighting;
+	private CompactPlayerSighting lastPredictionPlayerSighting;
 	private String lastPredictionUploaderName;
 
 	@Getter
@@ -1087,7 +1087,7 @@ public class BotDetectorPanel extends PluginPanel
 	 * @param pred The prediction to display. If {@code null}, clears and resets all panels.
 	 * @param sighting The player sighting to associate with the prediction for the flagging panel.
 	 */
-	public void setPrediction(Prediction pred, PlayerSighting sighting)
+	public void setPrediction(Prediction pred, CompactPlayerSighting sighting)
 	{
 		setPredictionLabelsColor(VALUE_COLOR);
 
@@ -1096,6 +1096,7 @@ public class BotDetectorPanel extends PluginPanel
 		if (pred != null)
 		{
 			final boolean isNullConfidence = pred.getConfidence() == null;
+			final LabelIndex labelIndex = detectorClient.getLabelIndex();
 
 			nameAutocompleter.addToSearchHistory(pred.getPlayerName().toLowerCase());
 			lastPrediction = pred;
@@ -1103,7 +1104,7 @@ public class BotDetectorPanel extends PluginPanel
 			lastPredictionUploaderName = plugin.getUploaderName(true);
 			predictionPlayerIdLabel.setText(String.valueOf(pred.getPlayerId()));
 			predictionPlayerNameLabel.setText(wrapHTML(pred.getPlayerName()));
-			predictionTypeLabel.setText(wrapHTML(normalizeLabel(pred.getPredictionLabel())));
+			predictionTypeLabel.setText(wrapHTML(labelIndex.getDisplayName(pred.getPredictionLabel())));
 			predictionConfidenceLabel.setText(isNullConfidence ? EMPTY_LABEL : wrapHTML(toColoredPercentSpan(pred.getConfidence()), false));
 
 			feedbackLabelComboBox.addItem(UNSURE_PREDICTION_LABEL);
@@ -1126,7 +1127,7 @@ public class BotDetectorPanel extends PluginPanel
 				}
 				else
 				{
-					predictionBreakdownLabel.setText(toPredictionBreakdownString(pred.getPredictionBreakdown()));
+					predictionBreakdownLabel.setText(toPredictionBreakdownString(pred.getPredictionBreakdown(), labelIndex));
 					predictionBreakdownPanel.setVisible(true);
 				}
 
@@ -1135,7 +1136,8 @@ public class BotDetectorPanel extends PluginPanel
 				pred.getPredictionBreakdown().entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(
 					entry ->
 					{
-						FeedbackPredictionLabel pLabel = new FeedbackPredictionLabel(entry.getKey(), entry.getValue(),
+						FeedbackPredictionLabel pLabel = new FeedbackPredictionLabel(entry.getKey(),
+							labelIndex.getDisplayName(entry.getKey()), entry.getValue(),
 							entry.getKey().equals(primaryLabel) ? FeedbackValue.POSITIVE : FeedbackValue.NEGATIVE);
 						feedbackLabelComboBox.addItem(pLabel);
 						if (pLabel.getFeedbackValue() == FeedbackValue.POSITIVE)
@@ -1251,6 +1253,7 @@ public class BotDetectorPanel extends PluginPanel
 
 	/**
 	 * Hits up the API and retrieves the bot prediction for the player name in the panel's {@link #searchBar}.
+	 * A previously cached prediction for the player is displayed right away while it is being refreshed.
 	 */
 	private void predictPlayer()
 	{
@@ -1284,7 +1287,15 @@ public class BotDetectorPanel extends PluginPanel
 		searchBar.setEditable(false);
 		searchBarLoading = true;
 
-		setPrediction(null);
+		final Prediction cachedPred = detectorClient.getCachedPrediction(target);
+		if (cachedPred != null)
+		{
+			setPrediction(cachedPred, plugin.getPersistentSightings().get(normalizeAndWrapPlayerName(target)));
+		}
+		else
+		{
+			setPrediction(null);
+		}
 
 		detectorClient.requestPrediction(target).whenCompleteAsync((pred, ex) ->
 			SwingUtilities.invokeLater(() ->
@@ -1301,12 +1312,22 @@ public class BotDetectorPanel extends PluginPanel
 				if (ex != null)
 				{
 					searchBar.setIcon(IconTextField.Icon.ERROR);
-					setPredictionError(target, "Server Error", ex.getMessage());
+					// Keep displaying the cached prediction if there is one
+					if (cachedPred == null)
+					{
+						setPredictionError(target, "Server Error", ex.getMessage());
+					}
 					return;
 				}
 
 				searchBar.setIcon(IconTextField.Icon.SEARCH);
 
+				if (pred != null && pred == cachedPred)
+				{
+					// Cached prediction was still fresh and is already displayed
+					return;
+				}
+
 				// Build a dummy prediction if player not found in API
 				Prediction p = pred;
 				if (p == null)
@@ -1321,7 +1342,7 @@ public class BotDetectorPanel extends PluginPanel
 				}
 
 				setPrediction(p, plugin.getPersistentSightings().get(normalizeAndWrapPlayerName(target)));
-			}));
+			}), plugin.getCallbackExecutor());
 	}
 
 	/**
@@ -1666,9 +1687,10 @@ public class BotDetectorPanel extends PluginPanel
 	/**
 	 * Creates a HTML table string for the given prediction breakdown map.
 	 * @param predictionMap The prediction breakdown map to process.
+	 * @param labelIndex The label index providing the display names of the labels.
 	 * @return A HTML table string containing the data from the given prediction breakdown map.
 	 */
-	private static String toPredictionBreakdownString(Map<String, Double> predictionMap)
+	private static String toPredictionBreakdownString(Map<String, Double> predictionMap, LabelIndex labelIndex)
 	{
 		if (predictionMap == null || predictionMap.size() == 0)
 		{
@@ -1687,7 +1709,7 @@ public class BotDetectorPanel extends PluginPanel
 		predictionMap.entrySet().stream().filter(e -> e.getValue() > 0)
 			.sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
 			.forEach(e -> sb.append(String.format(rowString,
-				normalizeLabel(e.getKey()),
+				labelIndex.getDisplayName(e.getKey()),
 				ColorUtil.toHexColor(getPercentColor(e.getValue())),
 				toPercentString(e.getValue()))));
 
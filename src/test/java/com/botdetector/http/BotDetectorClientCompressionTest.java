@@ -0,0 +1,198 @@
+package com.botdetector.http;
+
+import com.botdetector.model.CompactPlayerSighting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends sighting uploads to a local stand-in for the API, to check the gzip compression and its fallbacks.
+ */
+public class BotDetectorClientCompressionTest
+{
+	private static final String UPLOADER = "Uploader Name";
+
+	private final List<String> encodings = new CopyOnWriteArrayList<>();
+	private final List<byte[]> bodies = new CopyOnWriteArrayList<>();
+	/** Gives the status code and body to reply with for the received {@code Content-Encoding}. **/
+	private volatile Function<String, Reply> responder = encoding -> new Reply(200, "");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private BotDetectorClient client;
+
+	@Before
+	public void before() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", exchange ->
+		{
+			String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+			encodings.add(String.valueOf(encoding));
+			try (InputStream in = exchange.getRequestBody())
+			{
+				bodies.add(ByteStreams.toByteArray(in));
+			}
+
+			Reply reply = responder.apply(encoding);
+			byte[] out = reply.body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(reply.code, out.length == 0 ? -1 : out.length);
+			try (OutputStream os = exchange.getResponseBody())
+			{
+				os.write(out);
+			}
+		});
+		server.start();
+
+		client = new BotDetectorClient(new OkHttpClient(),
+			HttpUrl.parse("http://127.0.0.1:" + server.getAddress().getPort()),
+			new File(folder.getRoot(), "labels.json"));
+		client.setUploadCompressionEnabled(true);
+	}
+
+	@After
+	public void after()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testGzipRoundTrip() throws Exception
+	{
+		List<CompactPlayerSighting> sightings = createSightings();
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+
+		assertEquals(ImmutableList.of("gzip"), encodings);
+		byte[] decompressed;
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bodies.get(0))))
+		{
+			decompressed = ByteStreams.toByteArray(in);
+		}
+		assertEquals(toJson(sightings), new String(decompressed, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testFallsBackOn415() throws Exception
+	{
+		responder = encoding -> encoding != null ? new Reply(415, "") : new Reply(200, "");
+		List<CompactPlayerSighting> sightings = createSightings();
+
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("gzip", "null"), encodings);
+		assertEquals(toJson(sightings), new String(bodies.get(1), StandardCharsets.UTF_8));
+
+		// Compression stays off for the next uploads
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("gzip", "null", "null"), encodings);
+	}
+
+	@Test
+	public void testFallsBackOn400BlamingEncoding() throws Exception
+	{
+		responder = encoding -> encoding != null
+			? new Reply(400, "{\"detail\":\"Unsupported content encoding\"}") : new Reply(200, "");
+		List<CompactPlayerSighting> sightings = createSightings();
+
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("gzip", "null", "null"), encodings);
+	}
+
+	@Test
+	public void testRetriesOther400UncompressedOnce() throws Exception
+	{
+		responder = encoding -> encoding != null
+			? new Reply(400, "{\"detail\":\"Invalid sighting\"}") : new Reply(200, "");
+		List<CompactPlayerSighting> sightings = createSightings();
+
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("gzip", "null"), encodings);
+
+		// A payload error does not disable compression for the next uploads
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("gzip", "null", "gzip", "null"), encodings);
+	}
+
+	@Test
+	public void testUncompressedWhenDisabled() throws Exception
+	{
+		client.setUploadCompressionEnabled(false);
+		List<CompactPlayerSighting> sightings = createSightings();
+
+		assertTrue(client.sendSightings(sightings, UPLOADER, false).get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("null"), encodings);
+		assertEquals(toJson(sightings), new String(bodies.get(0), StandardCharsets.UTF_8));
+	}
+
+	private static String toJson(List<CompactPlayerSighting> sightings) throws IOException
+	{
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		SightingJsonWriter.writeSightings(writer, sightings, UPLOADER, false);
+		writer.flush();
+		return out.toString();
+	}
+
+	private static List<CompactPlayerSighting> createSightings()
+	{
+		ImmutableList.Builder<CompactPlayerSighting> sightings = ImmutableList.builder();
+		for (int i = 0; i < 100; i++)
+		{
+			int[] equipment = new int[CompactPlayerSighting.EQUIPMENT_SLOTS];
+			Arrays.fill(equipment, CompactPlayerSighting.EMPTY_SLOT);
+			equipment[0] = 1163;
+			sightings.add(CompactPlayerSighting.builder()
+				.playerName("Player " + i)
+				.regionID(12850)
+				.worldX(3200 + i)
+				.worldY(3200)
+				.plane(0)
+				.equipment(equipment)
+				.equipmentGEValue(i * 1000L)
+				.worldNumber(302)
+				.inMembersWorld(true)
+				.timestampEpochSeconds(1_700_000_000L + i)
+				.build());
+		}
+		return sightings.build();
+	}
+
+	private static class Reply
+	{
+		private final int code;
+		private final String body;
+
+		private Reply(int code, String body)
+		{
+			this.code = code;
+			this.body = body;
+		}
+	}
+}
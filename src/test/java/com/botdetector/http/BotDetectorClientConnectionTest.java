@@ -0,0 +1,233 @@
+package com.botdetector.http;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Prewarms connections to a local TLS stand-in for the API, to check what is sent and that the first call skips the handshake.
+ */
+public class BotDetectorClientConnectionTest
+{
+	/** Password of the self-signed {@code localhost.p12} test keystore. **/
+	private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+	private static final String LABELS_JSON = "[{\"id\":0,\"label\":\"Real_Player\"},{\"id\":1,\"label\":\"Fishing_bot\"}]";
+	private static final String PREDICTION_JSON = "[{\"player_id\":1,\"player_name\":\"Zezima\","
+		+ "\"prediction_label\":\"Real_Player\",\"prediction_confidence\":0.9,"
+		+ "\"predictions_breakdown\":{\"Real_Player\":0.9}}]";
+	private static final String METHOD_NOT_ALLOWED_JSON = "{\"detail\":\"Method Not Allowed\"}";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** The method and path of every request received by the server. **/
+	private final List<String> requests = new CopyOnWriteArrayList<>();
+	private final AtomicInteger handshakes = new AtomicInteger();
+
+	private ExecutorService serverExecutor;
+	private HttpsServer server;
+	private OkHttpClient rlClient;
+	private File labelsFile;
+
+	@Before
+	public void before() throws Exception
+	{
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream in = getClass().getResourceAsStream("localhost.p12"))
+		{
+			keyStore.load(in, KEYSTORE_PASSWORD);
+		}
+		KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(keyStore, KEYSTORE_PASSWORD);
+		TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagers.init(keyStore);
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+		server.setExecutor(serverExecutor);
+		server.createContext("/", exchange ->
+		{
+			String path = exchange.getRequestURI().getPath();
+			requests.add(exchange.getRequestMethod() + " " + path);
+			// Like the API, only GET is allowed on these routes
+			boolean allowed = exchange.getRequestMethod().equals("GET");
+			byte[] out = (!allowed ? METHOD_NOT_ALLOWED_JSON : path.endsWith("/labels") ? LABELS_JSON : PREDICTION_JSON)
+				.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(allowed ? 200 : 405, out.length);
+			try (OutputStream os = exchange.getResponseBody())
+			{
+				os.write(out);
+			}
+		});
+		server.start();
+
+		rlClient = new OkHttpClient.Builder()
+			.sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustManagers.getTrustManagers()[0])
+			.eventListener(new EventListener()
+			{
+				@Override
+				public void secureConnectStart(Call call)
+				{
+					handshakes.incrementAndGet();
+				}
+			})
+			.build();
+		labelsFile = new File(folder.getRoot(), "labels.json");
+	}
+
+	@After
+	public void after()
+	{
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testPrewarmFetchesMissingLabels() throws Exception
+	{
+		BotDetectorClient client = createClient();
+		client.prewarmConnection();
+		await(() -> client.getLabelIndex().getLabels().size() == 2);
+		awaitIdleConnection(client);
+
+		assertEquals(ImmutableList.of("GET /v2/labels"), requests);
+		assertEquals(1, handshakes.get());
+	}
+
+	@Test
+	public void testPrewarmSendsOptionsWhenLabelsAreFresh() throws Exception
+	{
+		byte[] persisted = writeFreshLabels();
+		BotDetectorClient client = createClient();
+		client.loadPersistedLabels();
+
+		client.prewarmConnection();
+		awaitIdleConnection(client);
+		assertEquals(ImmutableList.of("OPTIONS /v2/labels"), requests);
+
+		// The first call reuses the prewarmed connection
+		assertNotNull(client.requestPrediction("Zezima").get(10, TimeUnit.SECONDS));
+		assertEquals(ImmutableList.of("OPTIONS /v2/labels", "GET /v2/player/prediction"), requests);
+		assertEquals(1, handshakes.get());
+		assertArrayEquals(persisted, Files.readAllBytes(labelsFile.toPath()));
+	}
+
+	@Test
+	public void testPrewarmSkippedWhenConnectedOrRecent() throws Exception
+	{
+		writeFreshLabels();
+		BotDetectorClient client = createClient();
+		client.loadPersistedLabels();
+
+		assertNotNull(client.requestPrediction("Zezima").get(10, TimeUnit.SECONDS));
+		awaitIdleConnection(client);
+		client.prewarmConnection();
+		assertEquals(ImmutableList.of("GET /v2/player/prediction"), requests);
+
+		client.evictIdleConnections();
+		client.prewarmConnection();
+		awaitIdleConnection(client);
+		assertEquals(ImmutableList.of("GET /v2/player/prediction", "OPTIONS /v2/labels"), requests);
+
+		// Within the cooldown, even without an open connection
+		client.evictIdleConnections();
+		client.prewarmConnection();
+		assertEquals(2, requests.size());
+	}
+
+	@Test
+	public void testPrewarmSavesFirstCallHandshake() throws Exception
+	{
+		writeFreshLabels();
+
+		BotDetectorClient cold = createClient();
+		cold.loadPersistedLabels();
+		assertFirstPredictionHandshakes(cold, 1);
+
+		BotDetectorClient warm = createClient();
+		warm.loadPersistedLabels();
+		warm.prewarmConnection();
+		awaitIdleConnection(warm);
+		assertFirstPredictionHandshakes(warm, 0);
+	}
+
+	private void assertFirstPredictionHandshakes(BotDetectorClient client, int expectedHandshakes) throws Exception
+	{
+		int before = handshakes.get();
+		assertNotNull(client.requestPrediction("Zezima").get(10, TimeUnit.SECONDS));
+		assertEquals(expectedHandshakes, handshakes.get() - before);
+	}
+
+	private BotDetectorClient createClient() throws Exception
+	{
+		BotDetectorClient client = new BotDetectorClient(rlClient,
+			HttpUrl.parse("https://127.0.0.1:" + server.getAddress().getPort()), labelsFile);
+		// Injected by Guice in the client
+		Field gson = BotDetectorClient.class.getDeclaredField("gson");
+		gson.setAccessible(true);
+		gson.set(client, new Gson());
+		return client;
+	}
+
+	private byte[] writeFreshLabels() throws IOException
+	{
+		byte[] persisted = ("{\"fetched_at\":" + Instant.now().getEpochSecond() + ",\"labels\":" + LABELS_JSON + "}")
+			.getBytes(StandardCharsets.UTF_8);
+		Files.write(labelsFile.toPath(), persisted);
+		return persisted;
+	}
+
+	private static void awaitIdleConnection(BotDetectorClient client) throws InterruptedException
+	{
+		await(() -> client.okHttpClient.connectionPool().idleConnectionCount() > 0);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean())
+		{
+			assertTrue("Timed out", System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+	}
+}
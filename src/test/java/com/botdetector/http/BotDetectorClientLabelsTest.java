@@ -0,0 +1,155 @@
+package com.botdetector.http;
+
+import com.botdetector.model.LabelIndex;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fetches labels from a local stand-in for the API, to check when and where they are written to disk.
+ */
+public class BotDetectorClientLabelsTest
+{
+	private static final String LABELS_JSON = "[{\"id\":0,\"label\":\"Real_Player\"},{\"id\":1,\"label\":\"Fishing_bot\"}]";
+	private static final String CHANGED_LABELS_JSON = "[{\"id\":0,\"label\":\"Real_Player\"},{\"id\":1,\"label\":\"Fishing_bot\"},"
+		+ "{\"id\":2,\"label\":\"Mining_bot\"}]";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** Tasks handed to the client's callback executor, only run when the test says so. **/
+	private final Queue<Runnable> callbackTasks = new ConcurrentLinkedQueue<>();
+	private volatile String labelsJson = LABELS_JSON;
+
+	private HttpServer server;
+	private File labelsFile;
+	private BotDetectorClient client;
+
+	@Before
+	public void before() throws Exception
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/v2/labels", exchange ->
+		{
+			byte[] out = labelsJson.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, out.length);
+			try (OutputStream os = exchange.getResponseBody())
+			{
+				os.write(out);
+			}
+		});
+		server.start();
+
+		labelsFile = new File(folder.getRoot(), "labels.json");
+		client = new BotDetectorClient(new OkHttpClient(),
+			HttpUrl.parse("http://127.0.0.1:" + server.getAddress().getPort()), labelsFile);
+		client.setCallbackExecutor(callbackTasks::add);
+		// Injected by Guice in the client
+		Field gson = BotDetectorClient.class.getDeclaredField("gson");
+		gson.setAccessible(true);
+		gson.set(client, new Gson());
+	}
+
+	@After
+	public void after()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testWritesFetchedLabelsOnCallbackExecutor() throws Exception
+	{
+		LabelIndex index = client.requestLabels().get(10, TimeUnit.SECONDS);
+		assertEquals(2, index.getLabels().size());
+
+		// Nothing was written from the OkHttp thread
+		assertFalse(labelsFile.exists());
+		runCallbackTasks();
+		assertEquals(2, readPersisted().getAsJsonArray("labels").size());
+	}
+
+	@Test
+	public void testSkipsWriteOfUnchangedLabels() throws Exception
+	{
+		writePersisted(LABELS_JSON);
+		client.loadPersistedLabels();
+
+		// The persisted labels are stale, so they are refreshed in the background
+		refreshAndAwait();
+
+		assertTrue(callbackTasks.isEmpty());
+		assertEquals(1, readPersisted().get("fetched_at").getAsLong());
+	}
+
+	@Test
+	public void testWritesChangedLabels() throws Exception
+	{
+		writePersisted(LABELS_JSON);
+		client.loadPersistedLabels();
+		labelsJson = CHANGED_LABELS_JSON;
+
+		refreshAndAwait();
+
+		runCallbackTasks();
+		assertEquals(3, readPersisted().getAsJsonArray("labels").size());
+		assertEquals(3, client.getLabelIndex().getLabels().size());
+	}
+
+	/**
+	 * Requests the labels, then waits for the background refresh to replace them.
+	 */
+	private void refreshAndAwait() throws Exception
+	{
+		LabelIndex stale = client.getLabelIndex();
+		assertEquals(stale, client.requestLabels().get(10, TimeUnit.SECONDS));
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (client.getLabelIndex() == stale)
+		{
+			assertTrue("Labels were not refreshed", System.nanoTime() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private void runCallbackTasks()
+	{
+		Runnable task;
+		while ((task = callbackTasks.poll()) != null)
+		{
+			task.run();
+		}
+	}
+
+	private void writePersisted(String labels) throws IOException
+	{
+		Files.write(labelsFile.toPath(),
+			("{\"fetched_at\":1,\"labels\":" + labels + "}").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private JsonObject readPersisted() throws IOException
+	{
+		return new Gson().fromJson(new String(Files.readAllBytes(labelsFile.toPath()), StandardCharsets.UTF_8),
+			JsonObject.class);
+	}
+}
@@ -0,0 +1,204 @@
+package com.botdetector.http;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.Prediction;
+import com.botdetector.model.PredictionBatchResult;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requests predictions from a local stand-in for the API, to check their outcomes and what ends up in the prediction cache.
+ */
+public class BotDetectorClientPredictionTest
+{
+	private static final String PLAYER = "Zezima";
+	/** Player the API has no prediction for. **/
+	private static final String MISSING_PLAYER = "Missing";
+	/** Player whose prediction requests are rejected by the API. **/
+	private static final String REJECTED_PLAYER = "Rejected";
+	/** Player whose first prediction request is answered with a {@code Retry-After}. **/
+	private static final String BUSY_PLAYER = "Busy";
+
+	private final AtomicInteger busyReplies = new AtomicInteger();
+
+	private final AtomicInteger predictionRequests = new AtomicInteger();
+	/** Counted down by each prediction request once it has reached the server. **/
+	private volatile CountDownLatch predictionReceived = new CountDownLatch(1);
+	/** Awaited by each prediction request before replying. **/
+	private volatile CountDownLatch predictionReply = new CountDownLatch(0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecutorService serverExecutor;
+	private HttpServer server;
+	private BotDetectorClient client;
+
+	@Before
+	public void before() throws Exception
+	{
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(serverExecutor);
+		server.createContext("/v2/player/prediction", exchange ->
+		{
+			predictionRequests.incrementAndGet();
+			predictionReceived.countDown();
+			try
+			{
+				predictionReply.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			String name = exchange.getRequestURI().getQuery().replaceAll(".*name=([^&]*).*", "$1");
+			switch (name)
+			{
+				case MISSING_PLAYER:
+					reply(exchange, 404, "");
+					break;
+				case REJECTED_PLAYER:
+					reply(exchange, 400, "{\"detail\":\"Invalid name\"}");
+					break;
+				case BUSY_PLAYER:
+					if (busyReplies.getAndIncrement() == 0)
+					{
+						exchange.getResponseHeaders().add("Retry-After", "1");
+						reply(exchange, 503, "");
+						break;
+					}
+					// Fall through
+				default:
+					reply(exchange, 200, "[{\"player_id\":1,\"player_name\":\"" + name + "\","
+						+ "\"prediction_label\":\"Real_Player\",\"prediction_confidence\":0.9,"
+						+ "\"predictions_breakdown\":{\"Real_Player\":0.9}}]");
+					break;
+			}
+		});
+		// No known labels, so nothing is persisted
+		server.createContext("/v2/labels", exchange -> reply(exchange, 404, ""));
+		server.start();
+
+		client = new BotDetectorClient(new OkHttpClient(),
+			HttpUrl.parse("http://127.0.0.1:" + server.getAddress().getPort()),
+			new File(folder.getRoot(), "labels.json"));
+		client.setPredictionCacheTtl(Duration.ofMinutes(5));
+		// Injected by Guice in the client
+		Field gson = BotDetectorClient.class.getDeclaredField("gson");
+		gson.setAccessible(true);
+		gson.set(client, new Gson());
+	}
+
+	@After
+	public void after()
+	{
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testCachesFetchedPrediction() throws Exception
+	{
+		Prediction pred = client.requestPrediction(PLAYER).get(10, TimeUnit.SECONDS);
+		assertNotNull(pred);
+		assertEquals(pred, client.getCachedPrediction(PLAYER));
+
+		assertEquals(pred, client.requestPrediction(PLAYER).get(10, TimeUnit.SECONDS));
+		assertEquals(1, predictionRequests.get());
+	}
+
+	@Test
+	public void testInvalidationDuringFetchIsNotOverwritten() throws Exception
+	{
+		predictionReply = new CountDownLatch(1);
+		CompletableFuture<Prediction> inFlight = client.requestPrediction(PLAYER);
+		assertTrue(predictionReceived.await(10, TimeUnit.SECONDS));
+
+		client.invalidateCachedPrediction(PLAYER);
+		predictionReply.countDown();
+
+		assertNotNull(inFlight.get(10, TimeUnit.SECONDS));
+		assertNull(client.getCachedPrediction(PLAYER));
+
+		// The next request fetches again and caches its result
+		assertNotNull(client.requestPrediction(PLAYER).get(10, TimeUnit.SECONDS));
+		assertNotNull(client.getCachedPrediction(PLAYER));
+		assertEquals(2, predictionRequests.get());
+	}
+
+	@Test
+	public void testBatchReportsEachOutcome() throws Exception
+	{
+		Prediction cached = client.requestPrediction(PLAYER).get(10, TimeUnit.SECONDS);
+
+		PredictionBatchResult result = client.requestPredictions(
+			Arrays.asList(PLAYER, "Other", "other", MISSING_PLAYER, REJECTED_PLAYER)).get(10, TimeUnit.SECONDS);
+
+		assertEquals(ImmutableSet.of(wrap(PLAYER), wrap("Other")), result.getPredictions().keySet());
+		assertEquals(cached, result.getPredictions().get(wrap(PLAYER)));
+		assertEquals(ImmutableSet.of(wrap(MISSING_PLAYER)), result.getNotFound());
+		assertEquals(ImmutableSet.of(wrap(REJECTED_PLAYER)), result.getFailed().keySet());
+		assertTrue(result.getFailed().get(wrap(REJECTED_PLAYER)) instanceof IOException);
+		assertFalse(result.isFullySuccessful());
+
+		// The cached prediction was reused, the duplicate name was only requested once
+		assertEquals(4, predictionRequests.get());
+		assertNotNull(client.getCachedPrediction("Other"));
+		assertNull(client.getCachedPrediction(REJECTED_PLAYER));
+	}
+
+	@Test
+	public void testRetryAfterIsHonoredByRetry() throws Exception
+	{
+		long start = System.nanoTime();
+		assertNotNull(client.requestPrediction(BUSY_PLAYER).get(10, TimeUnit.SECONDS));
+
+		assertEquals(2, predictionRequests.get());
+		assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1));
+	}
+
+	private static CaseInsensitiveString wrap(String name)
+	{
+		return CaseInsensitiveString.wrap(name);
+	}
+
+	private static void reply(HttpExchange exchange, int code, String body) throws IOException
+	{
+		byte[] out = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(code, out.length == 0 ? -1 : out.length);
+		try (OutputStream os = exchange.getResponseBody())
+		{
+			os.write(out);
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package com.botdetector.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest
+{
+	private MutableClock clock;
+	private CircuitBreaker breaker;
+
+	@Before
+	public void before()
+	{
+		clock = new MutableClock(Instant.parse("2021-01-01T00:00:00Z"));
+		breaker = new CircuitBreaker("test", clock);
+	}
+
+	@Test
+	public void testStaysClosedBelowThreshold()
+	{
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertEquals(Duration.ZERO, breaker.getRemainingOpenTime());
+	}
+
+	@Test
+	public void testSuccessResetsFailureCount()
+	{
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+		breaker.onSuccess();
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testOpensAtThreshold()
+	{
+		openBreaker();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+		assertBetween(Duration.ofMillis(2500), Duration.ofSeconds(5), breaker.getRemainingOpenTime());
+	}
+
+	@Test
+	public void testLetsSingleProbeThroughOnceOpenTimeHasPassed()
+	{
+		openBreaker();
+		clock.advance(breaker.getRemainingOpenTime().minusMillis(1));
+		assertFalse(breaker.tryAcquire());
+
+		clock.advance(Duration.ofMillis(1));
+		assertTrue(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void testProbeSuccessCloses()
+	{
+		openBreaker();
+		clock.advance(breaker.getRemainingOpenTime());
+		assertTrue(breaker.tryAcquire());
+
+		breaker.onSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+
+		// The failure count starts over after closing
+		breaker.onFailure(null);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testProbeFailureReopensWithLongerBackoff()
+	{
+		openBreaker();
+		clock.advance(breaker.getRemainingOpenTime());
+		assertTrue(breaker.tryAcquire());
+
+		breaker.onFailure(null);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+		assertBetween(Duration.ofSeconds(5), Duration.ofSeconds(10), breaker.getRemainingOpenTime());
+	}
+
+	@Test
+	public void testRetryAfterDoesNotOpenBelowThreshold()
+	{
+		breaker.onFailure(Duration.ofSeconds(60));
+		breaker.onFailure(Duration.ofSeconds(60));
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	public void testRetryAfterExtendsOpenTime()
+	{
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+		breaker.onFailure(Duration.ofSeconds(60));
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(Duration.ofSeconds(60), breaker.getRemainingOpenTime());
+	}
+
+	@Test
+	public void testRetryAfterIsCapped()
+	{
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+		breaker.onFailure(Duration.ofHours(1));
+
+		assertEquals(Duration.ofMinutes(5), breaker.getRemainingOpenTime());
+	}
+
+	@Test
+	public void testJitteredBackoffBounds()
+	{
+		for (int attempt = 0; attempt < 30; attempt++)
+		{
+			long delay = Math.min(60_000, 1000L << Math.min(attempt, 20));
+			Duration backoff = CircuitBreaker.jitteredBackoff(attempt, Duration.ofSeconds(1), Duration.ofMinutes(1));
+			assertBetween(Duration.ofMillis(delay / 2), Duration.ofMillis(delay), backoff);
+		}
+	}
+
+	@Test
+	public void testParseRetryAfter()
+	{
+		assertEquals(Duration.ofSeconds(120), CircuitBreaker.parseRetryAfter("120"));
+		assertEquals(Duration.ZERO, CircuitBreaker.parseRetryAfter("-5"));
+		assertNull(CircuitBreaker.parseRetryAfter(null));
+		assertNull(CircuitBreaker.parseRetryAfter(""));
+		assertNull(CircuitBreaker.parseRetryAfter("soon"));
+
+		String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(2));
+		assertBetween(Duration.ofSeconds(60), Duration.ofSeconds(120), CircuitBreaker.parseRetryAfter(date));
+	}
+
+	private void openBreaker()
+	{
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+		breaker.onFailure(null);
+	}
+
+	private static void assertBetween(Duration min, Duration max, Duration actual)
+	{
+		assertTrue(actual + " < " + min, actual.compareTo(min) >= 0);
+		assertTrue(actual + " > " + max, actual.compareTo(max) <= 0);
+	}
+
+	private static class MutableClock extends Clock
+	{
+		private Instant now;
+
+		MutableClock(Instant now)
+		{
+			this.now = now;
+		}
+
+		void advance(Duration duration)
+		{
+			now = now.plus(duration);
+		}
+
+		@Override
+		public Instant instant()
+		{
+			return now;
+		}
+
+		@Override
+		public ZoneId getZone()
+		{
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone)
+		{
+			return this;
+		}
+	}
+}
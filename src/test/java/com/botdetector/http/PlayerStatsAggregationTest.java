@@ -0,0 +1,124 @@
+package com.botdetector.http;
+
+import com.botdetector.model.PlayerStats;
+import com.botdetector.model.PlayerStatsType;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the single-pass {@link BotDetectorClient#processPlayerStats(Collection, Collection)} against the previous
+ * two-pass aggregation over synthetic stats, such as those of heavy uploaders.
+ */
+public class PlayerStatsAggregationTest
+{
+	@Test
+	public void testMatchesTwoPassAggregation()
+	{
+		Random random = new Random(42);
+		for (int size : new int[]{0, 1, 10, 1_000})
+		{
+			List<BotDetectorClient.PlayerStatsAPIItem> reports = createReports(random, size);
+			List<BotDetectorClient.PlayerStatsAPIItem> feedback = createFeedback(random, size / 2);
+			assertEquals(twoPassAggregation(reports, feedback), BotDetectorClient.processPlayerStats(reports, feedback));
+		}
+	}
+
+	@Test
+	public void testMissingStats()
+	{
+		assertNull(BotDetectorClient.processPlayerStats(null, new ArrayList<>()));
+		assertNull(BotDetectorClient.processPlayerStats(new ArrayList<>(), null));
+	}
+
+	private static List<BotDetectorClient.PlayerStatsAPIItem> createReports(Random random, int size)
+	{
+		List<BotDetectorClient.PlayerStatsAPIItem> reports = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			// A few reports predate the manual flag
+			Boolean manual = random.nextInt(50) == 0 ? null : random.nextBoolean();
+			reports.add(new BotDetectorClient.PlayerStatsAPIItem(random.nextBoolean(), random.nextInt(4) == 0,
+				random.nextBoolean(), manual, random.nextInt(1_000), null));
+		}
+		return reports;
+	}
+
+	private static List<BotDetectorClient.PlayerStatsAPIItem> createFeedback(Random random, int size)
+	{
+		List<BotDetectorClient.PlayerStatsAPIItem> feedback = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			feedback.add(new BotDetectorClient.PlayerStatsAPIItem(false, false, false, null,
+				random.nextInt(100), (long) (random.nextInt(3) - 1)));
+		}
+		return feedback;
+	}
+
+	/**
+	 * The aggregation as it was before {@link BotDetectorClient#processPlayerStats(Collection, Collection)} became
+	 * a single pass: one filtered copy of the reports per flag, each counted separately.
+	 */
+	private static Map<PlayerStatsType, PlayerStats> twoPassAggregation(
+		Collection<BotDetectorClient.PlayerStatsAPIItem> reports, Collection<BotDetectorClient.PlayerStatsAPIItem> feedback)
+	{
+		PlayerStats passiveStats = countStats(reports.stream().filter(
+			r -> r.getManual() != null && !r.getManual()).collect(Collectors.toList()), false);
+		PlayerStats manualStats = countStats(reports.stream().filter(
+			r -> r.getManual() != null && r.getManual()).collect(Collectors.toList()), true);
+		PlayerStats feedbackStats = countStats(feedback, false);
+
+		PlayerStats totalStats = PlayerStats.builder()
+			.namesUploaded(passiveStats.getNamesUploaded() + manualStats.getNamesUploaded())
+			.confirmedBans(passiveStats.getConfirmedBans() + manualStats.getConfirmedBans())
+			.possibleBans(passiveStats.getPossibleBans() + manualStats.getPossibleBans())
+			.feedbackSent(feedbackStats.getNamesUploaded())
+			.build();
+
+		return ImmutableMap.of(
+			PlayerStatsType.TOTAL, totalStats,
+			PlayerStatsType.PASSIVE, passiveStats,
+			PlayerStatsType.MANUAL, manualStats
+		);
+	}
+
+	private static PlayerStats countStats(Collection<BotDetectorClient.PlayerStatsAPIItem> fromAPI, boolean countIncorrect)
+	{
+		long total = 0, confirmedBans = 0, possibleBans = 0, incorrectFlags = 0;
+		for (BotDetectorClient.PlayerStatsAPIItem item : fromAPI)
+		{
+			if (item.isBanned())
+			{
+				confirmedBans += item.getCount();
+			}
+			else
+			{
+				if (item.isPossibleBanned())
+				{
+					possibleBans += item.getCount();
+				}
+
+				if (countIncorrect && item.isPlayer())
+				{
+					incorrectFlags += item.getCount();
+				}
+			}
+
+			total += item.getCount();
+		}
+
+		return PlayerStats.builder()
+			.namesUploaded(total)
+			.confirmedBans(confirmedBans)
+			.possibleBans(possibleBans)
+			.incorrectFlags(incorrectFlags)
+			.build();
+	}
+}
@@ -0,0 +1,108 @@
+package com.botdetector.http;
+
+import com.botdetector.model.CompactPlayerSighting;
+import com.botdetector.model.PlayerSighting;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import net.runelite.api.kit.KitType;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class SightingJsonWriterTest
+{
+	@Test
+	public void testMatchesReflectiveGsonOutput() throws IOException
+	{
+		for (boolean flag : new boolean[]{false, true})
+		{
+			CompactPlayerSighting sighting = createSighting(flag);
+			String expected = createReflectiveGson().toJson(Collections.singletonList(
+				new PlayerSightingWrapper("Uploader Name", flag, sighting.toPlayerSighting())));
+
+			StringWriter actual = new StringWriter();
+			JsonWriter writer = new JsonWriter(actual);
+			SightingJsonWriter.writeSightings(writer, Collections.singletonList(sighting), "Uploader Name", flag);
+			writer.flush();
+
+			assertEquals(expected, actual.toString());
+		}
+	}
+
+	private static CompactPlayerSighting createSighting(boolean flag)
+	{
+		int[] equipment = new int[CompactPlayerSighting.EQUIPMENT_SLOTS];
+		Arrays.fill(equipment, CompactPlayerSighting.EMPTY_SLOT);
+		equipment[KitType.HEAD.ordinal()] = 1163;
+		equipment[KitType.WEAPON.ordinal()] = 4151;
+		equipment[KitType.BOOTS.ordinal()] = 11840;
+
+		return CompactPlayerSighting.builder()
+			.playerName("Some Player")
+			.regionID(12850)
+			.worldX(3222)
+			.worldY(3218)
+			.plane(0)
+			.equipment(equipment)
+			.equipmentGEValue(2_345_678L)
+			.worldNumber(302)
+			.inMembersWorld(flag)
+			.inPVPWorld(!flag)
+			.timestampEpochSeconds(1_700_000_000L)
+			.build();
+	}
+
+	/**
+	 * The {@link Gson} configuration previously used to serialize sighting uploads through reflection.
+	 */
+	private static Gson createReflectiveGson()
+	{
+		return new GsonBuilder().enableComplexMapKeySerialization()
+			.registerTypeAdapter(PlayerSightingWrapper.class, (JsonSerializer<PlayerSightingWrapper>) (src, type, context) ->
+			{
+				JsonElement json = context.serialize(src.sightingData);
+				json.getAsJsonObject().addProperty("reporter", src.uploaderName);
+				json.getAsJsonObject().add("manual_detect", context.serialize(src.manualDetect));
+				return json;
+			})
+			.registerTypeAdapter(KitType.class, (JsonSerializer<KitType>) (kitType, type, context) ->
+				context.serialize("equip_" + kitType.name().toLowerCase() + "_id"))
+			.registerTypeAdapter(Boolean.class, new BooleanToZeroOneSerializer())
+			.registerTypeAdapter(Instant.class, (JsonSerializer<Instant>) (src, type, context) ->
+				new JsonPrimitive(src.getEpochSecond()))
+			.create();
+	}
+
+	private static class BooleanToZeroOneSerializer implements JsonSerializer<Boolean>
+	{
+		@Override
+		public JsonElement serialize(Boolean src, Type typeOfSrc, JsonSerializationContext context)
+		{
+			return context.serialize(src ? 1 : 0);
+		}
+	}
+
+	private static class PlayerSightingWrapper
+	{
+		private final String uploaderName;
+		private final boolean manualDetect;
+		private final PlayerSighting sightingData;
+
+		private PlayerSightingWrapper(String uploaderName, boolean manualDetect, PlayerSighting sightingData)
+		{
+			this.uploaderName = uploaderName;
+			this.manualDetect = manualDetect;
+			this.sightingData = sightingData;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.botdetector.sighting;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlushSchedulerTest
+{
+	private static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+	/** Upper bound of the random delay added to each scheduled flush. **/
+	private static final Duration JITTER = Duration.ofSeconds(45);
+	private static final int SOME_SIGHTINGS = 100;
+	private static final int FEW_SIGHTINGS = 5;
+	private static final int MANY_SIGHTINGS = 10_000;
+
+	@Test
+	public void testFlushesAfterInterval()
+	{
+		FlushScheduler scheduler = new FlushScheduler(5, 60);
+		scheduler.reset(START, 10);
+
+		assertFalse(scheduler.shouldFlush(at(Duration.ofMinutes(10).minusMillis(1)), SOME_SIGHTINGS));
+		assertTrue(scheduler.shouldFlush(at(Duration.ofMinutes(10).plus(JITTER)), SOME_SIGHTINGS));
+	}
+
+	@Test
+	public void testIntervalIsClampedToMinimum()
+	{
+		FlushScheduler scheduler = new FlushScheduler(5, 60);
+		scheduler.reset(START, 1);
+
+		assertFalse(scheduler.shouldFlush(at(Duration.ofMinutes(5).minusMillis(1)), SOME_SIGHTINGS));
+		assertTrue(scheduler.shouldFlush(at(Duration.ofMinutes(5).plus(JITTER)), SOME_SIGHTINGS));
+	}
+
+	@Test
+	public void testIntervalIsClampedToMaximum()
+	{
+		FlushScheduler scheduler = new FlushScheduler(5, 60);
+		scheduler.reset(START, 500);
+
+		assertFalse(scheduler.shouldFlush(at(Duration.ofMinutes(60).minusMillis(1)), SOME_SIGHTINGS));
+		assertTrue(scheduler.shouldFlush(at(Duration.ofMinutes(60).plus(JITTER)), SOME_SIGHTINGS));
+	}
+
+	@Test
+	public void testFlushesEarlyUnderPressureAfterMinimum()
+	{
+		FlushScheduler scheduler = new FlushScheduler(5, 60);
+		scheduler.reset(START, 30);
+
+		assertFalse(scheduler.shouldFlush(at(Duration.ofMinutes(5).minusMillis(1)), MANY_SIGHTINGS));
+		assertTrue(scheduler.shouldFlush(at(Duration.ofMinutes(5)), MANY_SIGHTINGS));
+	}
+
+	@Test
+	public void testPostponesWhileNearlyEmpty()
+	{
+		FlushScheduler scheduler = new FlushScheduler(5, 60);
+		scheduler.reset(START, 10);
+
+		Instant due = at(Duration.ofMinutes(10).plus(JITTER));
+		assertFalse(scheduler.shouldFlush(due, FEW_SIGHTINGS));
+		// The flush was pushed back by another interval, even once enough sightings are buffered
+		assertFalse(scheduler.shouldFlush(due.plus(Duration.ofMinutes(10)).minusMillis(1), SOME_SIGHTINGS));
+		assertTrue(scheduler.shouldFlush(due.plus(Duration.ofMinutes(10)).plus(JITTER), SOME_SIGHTINGS));
+	}
+
+	@Test
+	public void testPostponesNoLaterThanMaximum()
+	{
+		FlushScheduler scheduler = new FlushScheduler(5, 20);
+		scheduler.reset(START, 15);
+
+		assertFalse(scheduler.shouldFlush(at(Duration.ofMinutes(15).plus(JITTER)), FEW_SIGHTINGS));
+		assertFalse(scheduler.shouldFlush(at(Duration.ofMinutes(20).minusMillis(1)), FEW_SIGHTINGS));
+		assertTrue(scheduler.shouldFlush(at(Duration.ofMinutes(20)), FEW_SIGHTINGS));
+	}
+
+	private static Instant at(Duration sinceStart)
+	{
+		return START.plus(sinceStart);
+	}
+}
@@ -0,0 +1,138 @@
+package com.botdetector.sighting;
+
+import com.botdetector.model.CompactPlayerSighting;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SightingSpoolTest
+{
+	private static final SightingSpool.Owner ALICE = new SightingSpool.Owner("Alice", false);
+	private static final SightingSpool.Owner ALICE_ANONYMOUS = new SightingSpool.Owner("Alice", true);
+	private static final SightingSpool.Owner BOB = new SightingSpool.Owner("Bob", false);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	@Before
+	public void before()
+	{
+		directory = new File(folder.getRoot(), "spool");
+	}
+
+	@Test
+	public void testReplaysClosedSessionForSameOwner() throws Exception
+	{
+		SightingSpool first = openSpool(ALICE);
+		first.append(createSighting("One"));
+		first.append(createSighting("Two"));
+		first.close();
+
+		SightingSpool second = openSpool(null);
+		assertEquals(Arrays.asList("One", "Two"), names(second.setOwner(ALICE).get(5, TimeUnit.SECONDS)));
+		second.close();
+
+		// Claimed sightings were copied into the second session, so they are not lost if it is not flushed either
+		SightingSpool third = openSpool(null);
+		assertEquals(Arrays.asList("One", "Two"), names(third.setOwner(ALICE).get(5, TimeUnit.SECONDS)));
+		third.close();
+	}
+
+	@Test
+	public void testDoesNotReplayOtherOwners() throws Exception
+	{
+		SightingSpool first = openSpool(ALICE);
+		first.append(createSighting("One"));
+		first.close();
+
+		SightingSpool second = openSpool(null);
+		assertTrue(second.setOwner(BOB).get(5, TimeUnit.SECONDS).isEmpty());
+		assertTrue(second.setOwner(ALICE_ANONYMOUS).get(5, TimeUnit.SECONDS).isEmpty());
+		second.close();
+
+		// Still there for the right owner
+		SightingSpool third = openSpool(null);
+		assertEquals(Collections.singletonList("One"), names(third.setOwner(ALICE).get(5, TimeUnit.SECONDS)));
+		third.close();
+	}
+
+	@Test
+	public void testDoesNotClaimRunningSession() throws Exception
+	{
+		SightingSpool running = openSpool(ALICE);
+		running.append(createSighting("One"));
+
+		SightingSpool other = openSpool(null);
+		assertTrue(other.setOwner(ALICE).get(5, TimeUnit.SECONDS).isEmpty());
+		other.close();
+
+		running.append(createSighting("Two"));
+		running.close();
+
+		SightingSpool next = openSpool(null);
+		assertEquals(Arrays.asList("One", "Two"), names(next.setOwner(ALICE).get(5, TimeUnit.SECONDS)));
+		next.close();
+	}
+
+	@Test
+	public void testReleaseKeepsOnlyUnsentSightings() throws Exception
+	{
+		SightingSpool spool = openSpool(ALICE);
+		CompactPlayerSighting failed = createSighting("Failed");
+		spool.append(createSighting("Sent"));
+		spool.append(failed);
+
+		SightingSpool.Checkpoint checkpoint = spool.checkpoint();
+		spool.append(createSighting("After"));
+		spool.release(checkpoint, Collections.singletonList(failed)).get(5, TimeUnit.SECONDS);
+		spool.close();
+
+		SightingSpool next = openSpool(null);
+		List<String> replayed = names(next.setOwner(ALICE).get(5, TimeUnit.SECONDS));
+		Collections.sort(replayed);
+		assertEquals(Arrays.asList("After", "Failed"), replayed);
+		next.close();
+	}
+
+	private SightingSpool openSpool(SightingSpool.Owner owner) throws Exception
+	{
+		SightingSpool spool = new SightingSpool(directory);
+		spool.open().get(5, TimeUnit.SECONDS);
+		if (owner != null)
+		{
+			spool.setOwner(owner).get(5, TimeUnit.SECONDS);
+		}
+		return spool;
+	}
+
+	private static List<String> names(List<CompactPlayerSighting> sightings)
+	{
+		return sightings.stream().map(CompactPlayerSighting::getPlayerName).collect(Collectors.toList());
+	}
+
+	private static CompactPlayerSighting createSighting(String name)
+	{
+		int[] equipment = new int[CompactPlayerSighting.EQUIPMENT_SLOTS];
+		Arrays.fill(equipment, CompactPlayerSighting.EMPTY_SLOT);
+		return CompactPlayerSighting.builder()
+			.playerName(name)
+			.regionID(12850)
+			.worldX(3222)
+			.worldY(3218)
+			.equipment(equipment)
+			.worldNumber(302)
+			.timestampEpochSeconds(1_700_000_000L)
+			.build();
+	}
+}
@@ -0,0 +1,129 @@
+package com.botdetector.sighting;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.Trajectory;
+import java.util.Collections;
+import org.junit.Test;
+import static com.botdetector.model.CaseInsensitiveString.wrap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrajectoryRecorderTest
+{
+	private static final CaseInsensitiveString PLAYER = wrap("Some Player");
+	private static final long START_MILLIS = 1_600_000_000_000L;
+
+	@Test
+	public void testTakeReturnsStepsAndKeepsLastPosition()
+	{
+		TrajectoryRecorder recorder = new TrajectoryRecorder(10, 8);
+		recorder.record(PLAYER, 3200, 3200, 0, 100, START_MILLIS);
+		recorder.record(PLAYER, 3201, 3200, 0, 102, START_MILLIS + 1200);
+		// Standing still is folded into the next step
+		recorder.record(PLAYER, 3201, 3200, 0, 104, START_MILLIS + 2400);
+		recorder.record(PLAYER, 3201, 3198, 1, 106, START_MILLIS + 3600);
+
+		assertEquals(Collections.singletonList(PLAYER), recorder.getMovedPlayers());
+
+		Trajectory trajectory = recorder.take(wrap("some player"));
+		assertEquals(3200, trajectory.getStartX());
+		assertEquals(3200, trajectory.getStartY());
+		assertEquals(0, trajectory.getStartPlane());
+		assertEquals(START_MILLIS, trajectory.getStartEpochMillis());
+		assertArrayEquals(new short[]{1, 0}, trajectory.getDx());
+		assertArrayEquals(new short[]{0, -2}, trajectory.getDy());
+		assertArrayEquals(new byte[]{0, 1}, trajectory.getDPlane());
+		assertArrayEquals(new short[]{2, 4}, trajectory.getDTicks());
+		assertEquals(3201, trajectory.getEndX());
+		assertEquals(3198, trajectory.getEndY());
+		assertEquals(1, trajectory.getEndPlane());
+		assertEquals(START_MILLIS + 3600, trajectory.getEndEpochMillis());
+
+		// Nothing new since the last take
+		assertNull(recorder.take(PLAYER));
+		assertTrue(recorder.getMovedPlayers().isEmpty());
+		assertEquals(1, recorder.size());
+
+		// The next trajectory starts where the previous one ended
+		recorder.record(PLAYER, 3202, 3198, 1, 107, START_MILLIS + 4200);
+		Trajectory next = recorder.take(PLAYER);
+		assertEquals(3201, next.getStartX());
+		assertEquals(3198, next.getStartY());
+		assertEquals(1, next.getStartPlane());
+		assertEquals(START_MILLIS + 3600, next.getStartEpochMillis());
+		assertArrayEquals(new short[]{1}, next.getDx());
+		assertArrayEquals(new short[]{1}, next.getDTicks());
+	}
+
+	@Test
+	public void testOldestStepsFoldIntoStart()
+	{
+		TrajectoryRecorder recorder = new TrajectoryRecorder(10, 3);
+		recorder.record(PLAYER, 3200, 3200, 0, 100, START_MILLIS);
+		for (int i = 1; i <= 5; i++)
+		{
+			recorder.record(PLAYER, 3200 + i, 3200 + 2 * i, 0, 100 + i, START_MILLIS + i * 600L);
+		}
+
+		Trajectory trajectory = recorder.take(PLAYER);
+		// The first 2 of the 5 steps were folded into the start position and time
+		assertEquals(3202, trajectory.getStartX());
+		assertEquals(3204, trajectory.getStartY());
+		assertEquals(START_MILLIS + 1200, trajectory.getStartEpochMillis());
+		assertArrayEquals(new short[]{1, 1, 1}, trajectory.getDx());
+		assertArrayEquals(new short[]{2, 2, 2}, trajectory.getDy());
+		assertArrayEquals(new short[]{1, 1, 1}, trajectory.getDTicks());
+		assertEquals(3205, trajectory.getEndX());
+		assertEquals(3210, trajectory.getEndY());
+	}
+
+	@Test
+	public void testTeleportStartsOver()
+	{
+		TrajectoryRecorder recorder = new TrajectoryRecorder(10, 8);
+		recorder.record(PLAYER, 3200, 3200, 0, 100, START_MILLIS);
+		recorder.record(PLAYER, 3201, 3200, 0, 101, START_MILLIS + 600);
+		// Too far to fit in a step
+		recorder.record(PLAYER, 3200 + 40_000, 3200, 0, 102, START_MILLIS + 1200);
+
+		// Only the new position is left, which is not a step yet
+		assertNull(recorder.take(PLAYER));
+
+		recorder.record(PLAYER, 43_201, 3201, 0, 103, START_MILLIS + 1800);
+		Trajectory trajectory = recorder.take(PLAYER);
+		assertEquals(43_200, trajectory.getStartX());
+		assertEquals(START_MILLIS + 1200, trajectory.getStartEpochMillis());
+		assertArrayEquals(new short[]{1}, trajectory.getDx());
+	}
+
+	@Test
+	public void testTickCounterResetStartsOver()
+	{
+		TrajectoryRecorder recorder = new TrajectoryRecorder(10, 8);
+		recorder.record(PLAYER, 3200, 3200, 0, 100, START_MILLIS);
+		recorder.record(PLAYER, 3201, 3200, 0, 101, START_MILLIS + 600);
+		recorder.record(PLAYER, 3202, 3200, 0, 5, START_MILLIS + 1200);
+
+		assertNull(recorder.take(PLAYER));
+	}
+
+	@Test
+	public void testLeastRecentlySampledPlayerIsDropped()
+	{
+		TrajectoryRecorder recorder = new TrajectoryRecorder(2, 8);
+		CaseInsensitiveString other = wrap("Other");
+		CaseInsensitiveString third = wrap("Third");
+		recorder.record(PLAYER, 3200, 3200, 0, 100, START_MILLIS);
+		recorder.record(other, 3200, 3200, 0, 100, START_MILLIS);
+		recorder.record(PLAYER, 3201, 3200, 0, 101, START_MILLIS + 600);
+		recorder.record(third, 3200, 3200, 0, 101, START_MILLIS + 600);
+
+		assertEquals(2, recorder.size());
+		assertArrayEquals(new short[]{1}, recorder.take(PLAYER).getDx());
+		// Tracked again from scratch
+		recorder.record(other, 3201, 3200, 0, 102, START_MILLIS + 1200);
+		assertNull(recorder.take(other));
+	}
+}